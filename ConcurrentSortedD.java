@@ -0,0 +1,390 @@
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// Thread safe version of GenericSortedD for read mostly use. Nodes are never changed once built:
+// put and remove copy the path from the root to the changed node (everything else is shared with
+// the old version) and publish the new root with a compare and set. Readers just read the root,
+// so they never wait, and whatever they got stays a consistent version of the map for as long as
+// they hold on to it, no matter how many writes happen meanwhile
+public class ConcurrentSortedD<K extends Comparable<K>, V> implements MySortedMap<K, V> {
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left, right;
+        final int height;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private final AtomicReference<Node<K, V>> root;
+
+    public ConcurrentSortedD() {
+        this(null);
+    }
+
+    private ConcurrentSortedD(Node<K, V> root) {
+        this.root = new AtomicReference<>(root);
+    }
+
+    private static int height(Node<?, ?> x) {
+        if (x == null) return 0;
+        return x.height;
+    }
+
+    // WRITES
+    // Writers never block each other either: if another write got in first, the copy is made
+    // again from the new root. Writes that change nothing don't publish anything
+    @Override
+    public void put(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        update(x -> put(x, key, value));
+    }
+
+    @Override
+    public void remove(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        update(x -> remove(x, key));
+    }
+
+    private void update(Function<Node<K, V>, Node<K, V>> change) {
+        while (true) {
+            Node<K, V> current = root.get();
+            Node<K, V> updated = change.apply(current);
+            if (updated == current || root.compareAndSet(current, updated)) return;
+        }
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> put(Node<K, V> x, K key, V value) {
+        if (x == null) return new Node<>(key, value, null, null);
+
+        int cmp = key.compareTo(x.key);
+        if (cmp < 0) {
+            Node<K, V> left = put(x.left, key, value);
+            return left == x.left ? x : balance(x.key, x.value, left, x.right);
+        } else if (cmp > 0) {
+            Node<K, V> right = put(x.right, key, value);
+            return right == x.right ? x : balance(x.key, x.value, x.left, right);
+        }
+        if (x.value == value) return x;
+        return new Node<>(key, value, x.left, x.right);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> remove(Node<K, V> x, K key) {
+        if (x == null) return null;
+
+        int cmp = key.compareTo(x.key);
+        if (cmp < 0) {
+            Node<K, V> left = remove(x.left, key);
+            return left == x.left ? x : balance(x.key, x.value, left, x.right);
+        } else if (cmp > 0) {
+            Node<K, V> right = remove(x.right, key);
+            return right == x.right ? x : balance(x.key, x.value, x.left, right);
+        }
+
+        // Node with only one child or no child
+        if (x.left == null) return x.right;
+        if (x.right == null) return x.left;
+
+        // Node with two children: the inorder successor takes its place
+        Node<K, V> successor = min(x.right);
+        return balance(successor.key, successor.value, x.left, removeMin(x.right));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> x) {
+        if (x.left == null) return x.right;
+        return balance(x.key, x.value, removeMin(x.left), x.right);
+    }
+
+    // New node for key with the given subtrees, rotated like GenericSortedD does when one side is
+    // two taller. The rotations build new nodes instead of relinking the old ones
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        // Left heavy
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                // Left-Left case
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            // Left-Right case
+            Node<K, V> middle = left.right;
+            return new Node<>(middle.key, middle.value,
+                    new Node<>(left.key, left.value, left.left, middle.left),
+                    new Node<>(key, value, middle.right, right));
+        }
+
+        // Right heavy
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                // Right-Right case
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            // Right-Left case
+            Node<K, V> middle = right.left;
+            return new Node<>(middle.key, middle.value,
+                    new Node<>(key, value, left, middle.left),
+                    new Node<>(right.key, right.value, middle.right, right.right));
+        }
+
+        return new Node<>(key, value, left, right);
+    }
+
+    // READS
+    // A copy of the map as it is right now, O(1) since all nodes are shared. Several reads on the
+    // snapshot see the same version; writes to either map don't show up in the other
+    public ConcurrentSortedD<K, V> snapshot() {
+        return new ConcurrentSortedD<>(root.get());
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> x = root.get();
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) x = x.left;
+            else if (cmp > 0) x = x.right;
+            else return x.value;
+        }
+        return null;
+    }
+
+    @Override
+    public K firstKey() {
+        Node<K, V> x = root.get();
+        if (x == null) return null;
+        return min(x).key;
+    }
+
+    @Override
+    public K lastKey() {
+        Node<K, V> x = root.get();
+        if (x == null) return null;
+        while (x.right != null) x = x.right;
+        return x.key;
+    }
+
+    private static <K, V> Node<K, V> min(Node<K, V> x) {
+        while (x.left != null) x = x.left;
+        return x;
+    }
+
+    public int height() {
+        return height(root.get());
+    }
+
+    @Override
+    public K floorKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> x = root.get();
+        K floor = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                floor = x.key;
+                x = x.right;
+            }
+        }
+        return floor;
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> x = root.get();
+        K ceiling = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                ceiling = x.key;
+                x = x.left;
+            }
+        }
+        return ceiling;
+    }
+
+    // The version is picked when getKeys()/getEntries() or one of the range views is called,
+    // iterating it later is lazy, O(log n) memory, and not affected by writes that happen in between.
+    // Range views are like SortedMap's: from keys are included, to keys are not
+    @Override
+    public Iterable<K> getKeys() {
+        Node<K, V> version = root.get();
+        return () -> new RangeIterator<>(version, null, null, x -> x.key);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> getEntries() {
+        return range(null, null);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> headMap(K toKey) {
+        if (toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(null, toKey);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> tailMap(K fromKey) {
+        if (fromKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(fromKey, null);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> subMap(K fromKey, K toKey) {
+        if (fromKey == null || toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        if (fromKey.compareTo(toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return range(fromKey, toKey);
+    }
+
+    private Iterable<Map.Entry<K, V>> range(K fromKey, K toKey) {
+        Node<K, V> version = root.get();
+        return () -> new RangeIterator<>(version, fromKey, toKey,
+                x -> new AbstractMap.SimpleImmutableEntry<>(x.key, x.value));
+    }
+
+    // Inorder walk from the first key >= fromKey, a null bound means no bound
+    private static class RangeIterator<K extends Comparable<K>, V, T> implements Iterator<T> {
+        private final ArrayDeque<Node<K, V>> stack = new ArrayDeque<>();
+        private final K toKey;
+        private final Function<Node<K, V>, T> element;
+
+        RangeIterator(Node<K, V> root, K fromKey, K toKey, Function<Node<K, V>, T> element) {
+            this.toKey = toKey;
+            this.element = element;
+            Node<K, V> x = root;
+            while (x != null) {
+                if (fromKey != null && x.key.compareTo(fromKey) < 0) {
+                    x = x.right;
+                } else {
+                    stack.push(x);
+                    x = x.left;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (toKey == null || stack.peek().key.compareTo(toKey) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node<K, V> x = stack.pop();
+            for (Node<K, V> y = x.right; y != null; y = y.left) {
+                stack.push(y);
+            }
+            return element.apply(x);
+        }
+    }
+
+    // Readers iterate the whole map while one writer keeps rewriting it. The writer always sets
+    // every key to the same round number, in key order, so in any consistent version the values
+    // never grow along the keys and differ by at most one
+    public static void main(String[] args) throws InterruptedException {
+        int keys = 10_000;
+        int readers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        long millis = 2_000;
+
+        ConcurrentSortedD<Integer, Integer> map = new ConcurrentSortedD<>();
+        for (int key = 0; key < keys; key++) {
+            map.put(key, 0);
+        }
+
+        // Everyone waits on start, the rates are over the time from releasing it until all threads stopped
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(readers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong writes = new AtomicLong();
+        AtomicLong scans = new AtomicLong();
+        AtomicLong inconsistent = new AtomicLong();
+
+        Thread writer = new Thread(() -> {
+            if (!awaitStart(ready, start)) return;
+            for (int round = 1; running.get(); round++) {
+                for (int key = 0; key < keys && running.get(); key++) {
+                    map.put(key, round);
+                    writes.incrementAndGet();
+                }
+            }
+        });
+
+        Thread[] readerThreads = new Thread[readers];
+        for (int i = 0; i < readers; i++) {
+            readerThreads[i] = new Thread(() -> {
+                if (!awaitStart(ready, start)) return;
+                while (running.get()) {
+                    int first = -1, previous = Integer.MAX_VALUE, count = 0;
+                    boolean consistent = true;
+                    for (Map.Entry<Integer, Integer> entry : map.getEntries()) {
+                        int value = entry.getValue();
+                        if (first < 0) first = value;
+                        consistent &= value <= previous && first - value <= 1;
+                        previous = value;
+                        count++;
+                    }
+                    if (!consistent || count != keys) inconsistent.incrementAndGet();
+                    scans.incrementAndGet();
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readerThreads) reader.start();
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readerThreads) reader.join();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf("Copy on write map with %d keys, 1 writer and %d readers for %.0f ms%n", keys, readers, seconds * 1000);
+        System.out.printf("Writes: %.0f/s%n", writes.get() / seconds);
+        System.out.printf("Full scans: %.0f/s (%.0f entries/s)%n", scans.get() / seconds, scans.get() * (double) keys / seconds);
+        System.out.println("Inconsistent scans: " + inconsistent.get());
+        System.out.println("Height: " + map.height());
+
+        // A snapshot keeps its version while the map moves on
+        ConcurrentSortedD<Integer, Integer> snapshot = map.snapshot();
+        map.remove(0);
+        map.put(keys, -1);
+        System.out.println("Snapshot first/last: " + snapshot.firstKey() + "/" + snapshot.lastKey()
+                + ", map first/last: " + map.firstKey() + "/" + map.lastKey());
+    }
+
+    private static boolean awaitStart(CountDownLatch ready, CountDownLatch start) {
+        ready.countDown();
+        try {
+            start.await();
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
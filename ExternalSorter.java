@@ -0,0 +1,414 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// External merge sort for inputs bigger than the heap.
+// Records are collected until the memory budget is reached, sorted with any Sorter2 and written
+// to a temporary run file in a compact binary format, then all runs are merged with a heap.
+// Usage: add every record, then finish(output) gets them back in order
+public class ExternalSorter<T> implements Closeable {
+    private static final int MIN_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BUFFER_SIZE = 1 << 22;
+    // Slot in the run array plus the slot in the temp array of the sorter
+    private static final int REFERENCE_OVERHEAD = 16;
+
+    private final Sorter2<T> sorter;
+    private final RecordCodec<T> codec;
+    private final Comparator<T> comparator;
+    private final long memoryBudget;
+    private final File tempDirectory;
+
+    private T[] run;
+    private int runSize;
+    private long runBytes;
+    private long size;
+    private final List<File> runFiles = new ArrayList<>();
+    // Output of the merge pass in progress, a field so close() deletes these too if the pass fails
+    private final List<File> mergedRuns = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    public ExternalSorter(Sorter2<T> sorter, RecordCodec<T> codec, Comparator<T> comparator,
+                          long memoryBudget, File tempDirectory) {
+        if (memoryBudget < 2L * MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Memory budget must be at least " + 2 * MIN_BUFFER_SIZE + " bytes");
+        }
+        this.sorter = sorter;
+        this.codec = codec;
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+        this.run = (T[]) new Object[1024];
+    }
+
+    // Number of records added so far
+    public long size() {
+        return size;
+    }
+
+    // Number of runs already written to disk
+    public int getRunCount() {
+        return runFiles.size();
+    }
+
+    public void add(T record) {
+        long recordBytes = codec.estimatedSize(record) + REFERENCE_OVERHEAD;
+        if (runSize > 0 && runBytes + recordBytes > memoryBudget) {
+            try {
+                spillRun();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (runSize == run.length) {
+            run = Arrays.copyOf(run, run.length + (run.length >> 1));
+        }
+        run[runSize++] = record;
+        runBytes += recordBytes;
+        size++;
+    }
+
+    // Hands every record in order to output and deletes the temporary files
+    public void finish(Consumer<T> output) throws IOException {
+        try {
+            // Everything fitted in memory, no need for the disk at all
+            if (runFiles.isEmpty()) {
+                T[] records = sortRun();
+                for (int i = 0; i < runSize; i++) {
+                    output.accept(records[i]);
+                }
+                return;
+            }
+
+            if (runSize > 0) spillRun();
+            run = Arrays.copyOf(run, 0);
+
+            // Every run being merged needs two buffers, with too many runs for the budget
+            // groups of them are merged into bigger runs first
+            int maxFanIn = (int) Math.max(2, Math.min(Integer.MAX_VALUE, memoryBudget / (2L * MIN_BUFFER_SIZE)));
+            while (runFiles.size() > maxFanIn) {
+                for (int from = 0; from < runFiles.size(); from += maxFanIn) {
+                    List<File> group = runFiles.subList(from, Math.min(from + maxFanIn, runFiles.size()));
+                    File mergedRun = File.createTempFile("run", ".bin", tempDirectory);
+                    mergedRuns.add(mergedRun);
+
+                    try (DataOutputStream out = openRun(mergedRun)) {
+                        merge(group, out, null);
+                    }
+                    for (File file : group) {
+                        file.delete();
+                    }
+                }
+                runFiles.clear();
+                runFiles.addAll(mergedRuns);
+                mergedRuns.clear();
+            }
+
+            merge(runFiles, null, output);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (File file : runFiles) {
+            file.delete();
+        }
+        for (File file : mergedRuns) {
+            file.delete();
+        }
+        runFiles.clear();
+        mergedRuns.clear();
+        runSize = 0;
+        runBytes = 0;
+    }
+
+    private T[] sortRun() {
+        T[] records = runSize == run.length ? run : Arrays.copyOf(run, runSize);
+        sorter.sort(records, comparator);
+        return records;
+    }
+
+    // Run file: the number of records as a long, then every record written by the codec
+    private void spillRun() throws IOException {
+        T[] records = sortRun();
+        File file = File.createTempFile("run", ".bin", tempDirectory);
+        runFiles.add(file);
+
+        try (DataOutputStream out = openRun(file)) {
+            out.writeLong(runSize);
+            for (int i = 0; i < runSize; i++) {
+                codec.write(out, records[i]);
+            }
+        }
+
+        Arrays.fill(run, 0, runSize, null);
+        runSize = 0;
+        runBytes = 0;
+    }
+
+    private DataOutputStream openRun(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), MIN_BUFFER_SIZE));
+    }
+
+    // k-way merge of the runs, written as a new run to out or handed to output.
+    // Ties are taken from the earlier run first so the merge keeps the sort stable
+    private void merge(List<File> files, DataOutputStream out, Consumer<T> output) throws IOException {
+        int bufferSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, memoryBudget / (2L * files.size())));
+        ExecutorService prefetcher = Executors.newFixedThreadPool(
+                Math.min(files.size(), Runtime.getRuntime().availableProcessors()), task -> {
+                    Thread thread = new Thread(task, "run-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<RunReader> heap = new PriorityQueue<>((a, b) -> {
+                int cmp = comparator.compare(a.current, b.current);
+                return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+            });
+
+            long total = 0;
+            for (int i = 0; i < files.size(); i++) {
+                RunReader reader = new RunReader(i, new DataInputStream(
+                        new PrefetchInputStream(new FileInputStream(files.get(i)), bufferSize, prefetcher)));
+                readers.add(reader);
+                total += reader.remaining;
+                if (reader.advance()) heap.add(reader);
+            }
+
+            if (out != null) out.writeLong(total);
+
+            while (!heap.isEmpty()) {
+                RunReader smallest = heap.poll();
+                if (out != null) codec.write(out, smallest.current);
+                else output.accept(smallest.current);
+
+                if (smallest.advance()) heap.add(smallest);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+            prefetcher.shutdownNow();
+        }
+    }
+
+    private class RunReader {
+        final int index;
+        final DataInputStream in;
+        long remaining;
+        T current;
+
+        RunReader(int index, DataInputStream in) throws IOException {
+            this.index = index;
+            this.in = in;
+            this.remaining = in.readLong();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            current = codec.read(in);
+            remaining--;
+            return true;
+        }
+    }
+
+    public static void main(String[] args) {
+        // File names, change after yours
+        String integersFile = "RandomIntegers_1M.txt";
+        String personsFile = "people-1M.txt";
+
+        // Memory budget in MB for the records held in memory, first argument if given
+        long memoryBudget = (args.length > 0 ? Long.parseLong(args[0]) : 16) * 1024 * 1024;
+        File tempDirectory = new File(System.getProperty("java.io.tmpdir"));
+        Stopwatch timer = new Stopwatch();
+
+        try (ExternalSorter<Integer> integerSorter = new ExternalSorter<>(new MergeSorter2<>(), new IntegerCodec(),
+                     Integer::compareTo, memoryBudget, tempDirectory);
+             ExternalSorter<Person> personSorter = new ExternalSorter<>(new MergeSorter2<>(), new PersonCodec(),
+                     Comparator.comparing(Person::getLastName), memoryBudget, tempDirectory)) {
+
+            System.out.println("External sort of integers...");
+            timer.start();
+            DataReader.forEachInteger(integersFile, integerSorter::add);
+            int integerRuns = integerSorter.getRunCount();
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("RandomIntegers_sorted.txt")))) {
+                out.println(integerSorter.size());
+                integerSorter.finish(out::println);
+            }
+            System.out.println("Sorted " + integerSorter.size() + " integers in " + timer.getElapsedTime() +
+                    " seconds using " + integerRuns + " runs on disk");
+
+            System.out.println("\nExternal sort of persons by last name...");
+            timer.start();
+            DataReader.forEachPerson(personsFile, personSorter::add);
+            int personRuns = personSorter.getRunCount();
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("people_sorted.txt")))) {
+                out.println(personSorter.size());
+                personSorter.finish(out::println);
+            }
+            System.out.println("Sorted " + personSorter.size() + " persons in " + timer.getElapsedTime() +
+                    " seconds using " + personRuns + " runs on disk");
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error processing files: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
+
+// Binary form of a record in the run files, and a guess of its size on the heap for the memory budget
+interface RecordCodec<T> {
+    void write(DataOutput out, T record) throws IOException;
+    T read(DataInput in) throws IOException;
+    long estimatedSize(T record);
+}
+
+class IntegerCodec implements RecordCodec<Integer> {
+    @Override
+    public void write(DataOutput out, Integer record) throws IOException {
+        out.writeInt(record);
+    }
+
+    @Override
+    public Integer read(DataInput in) throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    public long estimatedSize(Integer record) {
+        return 16;
+    }
+}
+
+// Id and names as length prefixed UTF-8, the birth date as one packed yyyymmdd int
+class PersonCodec implements RecordCodec<Person> {
+    @Override
+    public void write(DataOutput out, Person record) throws IOException {
+        out.writeUTF(record.getId());
+        out.writeUTF(record.getFirstName());
+        out.writeUTF(record.getLastName());
+        out.writeInt(record.getBirthDateKey());
+    }
+
+    @Override
+    public Person read(DataInput in) throws IOException {
+        String id = in.readUTF();
+        String firstName = in.readUTF();
+        String lastName = in.readUTF();
+        int date = in.readInt();
+        return new Person(id, firstName, lastName, date % 100, date / 100 % 100, date / 10000);
+    }
+
+    // Object header and fields, plus a String object and its array for every text field
+    @Override
+    public long estimatedSize(Person record) {
+        return 40 + stringSize(record.getId()) + stringSize(record.getFirstName()) + stringSize(record.getLastName());
+    }
+
+    private static long stringSize(String s) {
+        return 24 + 16 + s.length();
+    }
+}
+
+// Reads the next block on a background thread while the current one is being consumed
+class PrefetchInputStream extends InputStream {
+    private final InputStream in;
+    private final ExecutorService executor;
+    private byte[] current;
+    private byte[] next;
+    private int position;
+    private int limit;
+    private Future<Integer> pending;
+
+    PrefetchInputStream(InputStream in, int bufferSize, ExecutorService executor) {
+        this.in = in;
+        this.executor = executor;
+        this.current = new byte[bufferSize];
+        this.next = new byte[bufferSize];
+        prefetch();
+    }
+
+    private void prefetch() {
+        byte[] target = next;
+        pending = executor.submit(() -> readFully(target));
+    }
+
+    private int readFully(byte[] target) throws IOException {
+        int total = 0;
+        while (total < target.length) {
+            int read = in.read(target, total, target.length - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    // Swaps in the prefetched block and starts reading the one after it
+    private boolean fill() throws IOException {
+        if (pending == null) return false;
+
+        int read;
+        try {
+            read = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while prefetching");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+
+        byte[] swap = current;
+        current = next;
+        next = swap;
+        position = 0;
+        limit = read;
+
+        // A short block means the end of the file was reached
+        if (read < current.length) pending = null;
+        else prefetch();
+        return read > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (position == limit && !fill()) return -1;
+
+        int n = Math.min(len, limit - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // The stream is closed anyway
+            }
+            pending = null;
+        }
+        in.close();
+    }
+}
@@ -1,10 +1,16 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.Random;
+import java.util.function.Consumer;
 
 /**
  * Interface for Generic Binary Search Tree operations
@@ -42,7 +48,7 @@ interface GenericBSTInterface<K extends Comparable<K>, V> {
     void printLevels();
 }
 
-public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterface<K, V> {
+public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterface<K, V>, Iterable<K> {
     
     private class Node {
         K key;          
@@ -64,14 +70,35 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
     // CORE BST OPERATIONS
     @Override
     public void inorder() {
-        inorder(root);
+        morrisInorder(x -> System.out.println(x.key + ": " + x.val));
     }
 
-    private void inorder(Node x) {
-        if (x == null) return;
-        inorder(x.left);
-        System.out.println(x.key + ": " + x.val);
-        inorder(x.right);
+    // Morris traversal: the rightmost node of each left subtree gets a temporary link back to
+    // its successor instead of keeping a stack. The links are removed on the second visit, so the
+    // tree is unchanged afterwards as long as the action doesn't modify it
+    private void morrisInorder(Consumer<Node> action) {
+        Node x = root;
+        while (x != null) {
+            if (x.left == null) {
+                action.accept(x);
+                x = x.right;
+                continue;
+            }
+
+            Node predecessor = x.left;
+            while (predecessor.right != null && predecessor.right != x) {
+                predecessor = predecessor.right;
+            }
+
+            if (predecessor.right == null) {
+                predecessor.right = x;
+                x = x.left;
+            } else {
+                predecessor.right = null;
+                action.accept(x);
+                x = x.right;
+            }
+        }
     }
 
     @Override
@@ -82,30 +109,38 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
 
     @Override
     public V get(K key) {
-        return get(root, key);
-    }
-    
-    private V get(Node x, K key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) return get(x.left, key);
-        else if (cmp > 0) return get(x.right, key);
-        else return x.val;
+        Node x = findNode(root, key);
+        return x == null ? null : x.val;
     }
 
     @Override
     public void put(K key, V val) {
         if (key == null) throw new IllegalArgumentException("calls put() with a null key");
-        root = put(root, key, val);
+        insert(key, val);
     }
 
-    private Node put(Node x, K key, V val) {
-        if (x == null) return new Node(key, val);
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) x.left = put(x.left, key, val);
-        else if (cmp > 0) x.right = put(x.right, key, val);
-        else x.val = val;
-        return x;
+    private void insert(K key, V val) {
+        if (root == null) {
+            root = new Node(key, val);
+            return;
+        }
+
+        Node x = root;
+        while (true) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) {
+                x.val = val;
+                return;
+            }
+
+            Node child = cmp < 0 ? x.left : x.right;
+            if (child == null) {
+                if (cmp < 0) x.left = new Node(key, val);
+                else x.right = new Node(key, val);
+                return;
+            }
+            x = child;
+        }
     }
 
     @Override
@@ -115,8 +150,8 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
     }
 
     private Node min(Node x) {
-        if (x.left == null) return x;
-        return min(x.left);
+        while (x.left != null) x = x.left;
+        return x;
     }
 
     @Override
@@ -126,59 +161,81 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
     }
 
     private Node max(Node x) {
-        if (x.right == null) return x;
-        return max(x.right);
+        while (x.right != null) x = x.right;
+        return x;
     }
 
     @Override
     public void delete(K key) {
         if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
-        root = deleteRecursive(root, key);
-    }
+        Node parent = null;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) break;
+            parent = x;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        if (x == null) return;
 
-    private Node deleteRecursive(Node x, K key) {
-        if (x == null) return null;
-        
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) x.left = deleteRecursive(x.left, key);
-        else if (cmp > 0) x.right = deleteRecursive(x.right, key);
-        else {
-            if (x.left == null && x.right == null) return null;
-            
-            if (x.left == null) return x.right;
-            if (x.right == null) return x.left;
-            
-            Node successor = min(x.right);
+        // Two children: copy the successor into x and unlink the successor instead
+        if (x.left != null && x.right != null) {
+            Node successorParent = x;
+            Node successor = x.right;
+            while (successor.left != null) {
+                successorParent = successor;
+                successor = successor.left;
+            }
             x.key = successor.key;
             x.val = successor.val;
-            x.right = deleteRecursive(x.right, successor.key);
+            parent = successorParent;
+            x = successor;
         }
-        return x;
+
+        // x has at most one child now
+        Node child = x.left != null ? x.left : x.right;
+        if (parent == null) root = child;
+        else if (parent.left == x) parent.left = child;
+        else parent.right = child;
     }
 
     // ADDITIONAL OPERATIONS
     @Override
     public void preorder() {
-        preorder(root);
+        forEachPreorder(x -> System.out.println(x.key + ": " + x.val));
     }
-    
-    private void preorder(Node x) {
-        if (x == null) return;
-        System.out.println(x.key + ": " + x.val);
-        preorder(x.left);
-        preorder(x.right);
+
+    private void forEachPreorder(Consumer<Node> action) {
+        if (root == null) return;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node x = stack.pop();
+            action.accept(x);
+            if (x.right != null) stack.push(x.right);
+            if (x.left != null) stack.push(x.left);
+        }
     }
     
     @Override
     public void postorder() {
-        postorder(root);
-    }
-    
-    private void postorder(Node x) {
-        if (x == null) return;
-        postorder(x.left);
-        postorder(x.right);
-        System.out.println(x.key + ": " + x.val);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node x = root;
+        Node lastVisited = null;
+        while (x != null || !stack.isEmpty()) {
+            if (x != null) {
+                stack.push(x);
+                x = x.left;
+            } else {
+                Node top = stack.peek();
+                if (top.right != null && top.right != lastVisited) {
+                    x = top.right;
+                } else {
+                    System.out.println(top.key + ": " + top.val);
+                    lastVisited = stack.pop();
+                }
+            }
+        }
     }
     
     @Override
@@ -186,9 +243,22 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         return height(root);
     }
     
+    // Level by level, the height is the number of levels below x
     private int height(Node x) {
         if (x == null) return -1;
-        return 1 + Math.max(height(x.left), height(x.right));
+
+        ArrayDeque<Node> level = new ArrayDeque<>();
+        level.add(x);
+        int height = -1;
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node node = level.poll();
+                if (node.left != null) level.add(node.left);
+                if (node.right != null) level.add(node.right);
+            }
+        }
+        return height;
     }
 
     @Override
@@ -199,42 +269,45 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
     }
     
     private Node findNode(Node x, K key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) return findNode(x.left, key);
-        else if (cmp > 0) return findNode(x.right, key);
-        else return x; 
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) x = x.left;
+            else if (cmp > 0) x = x.right;
+            else return x;
+        }
+        return null;
     }
     
+    // In a BST the inorder keys are strictly increasing. Explicit stack instead of Morris
+    // because we may stop halfway, with temporary links still in the tree
     @Override
     public boolean isBST() {
-        return isBST(root,null, null);
-    }
-    
-    private boolean isBST(Node x, K min, K max) {
-        if (x == null) return true;
-        if (min != null && x.key.compareTo(min) <= 0) return false;
-        if (max != null && x.key.compareTo(max) >= 0) return false;
-        return isBST(x.left, min, x.key) && isBST(x.right, x.key, max);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node x = root;
+        K previous = null;
+        while (x != null || !stack.isEmpty()) {
+            while (x != null) {
+                stack.push(x);
+                x = x.left;
+            }
+            x = stack.pop();
+            if (previous != null && x.key.compareTo(previous) <= 0) return false;
+            previous = x.key;
+            x = x.right;
+        }
+        return true;
     }
         
     @Override
     public void spoilValues() {
         Random random = new Random();
-        spoilValues(root, random);
-    }
-    
-    private void spoilValues(Node x, Random random) {
-        if (x == null) return;
-        
-        if (x.val instanceof Integer) {
-            x.val = (V) Integer.valueOf(random.nextInt(100));
-        } else if (x.val instanceof String) {
-            x.val = (V) ("Random" + random.nextInt(100));
-        }
-        
-        spoilValues(x.left, random);
-        spoilValues(x.right, random);
+        forEachPreorder(x -> {
+            if (x.val instanceof Integer) {
+                x.val = (V) Integer.valueOf(random.nextInt(100));
+            } else if (x.val instanceof String) {
+                x.val = (V) ("Random" + random.nextInt(100));
+            }
+        });
     }
     
     @Override
@@ -285,22 +358,32 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         return predecessor != null ? predecessor.key : null;
     }
     
+    // Postorder, so the heights of both children are on the heights stack when a node is done:
+    // the right one on top, the left one under it
     @Override
     public boolean isPerfectlyBalanced() {
-        return isPerfectlyBalanced(root);
-    }
-    
-    private boolean isPerfectlyBalanced(Node x) {
-        if (x == null) return true;
-        int leftHeight = height(x.left);
-        int rightHeight = height(x.right);
-        return Math.abs(leftHeight - rightHeight) <= 1 &&
-               isPerfectlyBalanced(x.left) && isPerfectlyBalanced(x.right);
-    }
-    
-    private int countNodes(Node x) {
-        if (x == null) return 0;
-        return 1 + countNodes(x.left) + countNodes(x.right);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> heights = new ArrayDeque<>();
+        Node x = root;
+        Node lastVisited = null;
+        while (x != null || !stack.isEmpty()) {
+            if (x != null) {
+                stack.push(x);
+                x = x.left;
+            } else {
+                Node top = stack.peek();
+                if (top.right != null && top.right != lastVisited) {
+                    x = top.right;
+                } else {
+                    int rightHeight = top.right != null ? heights.pop() : -1;
+                    int leftHeight = top.left != null ? heights.pop() : -1;
+                    if (Math.abs(leftHeight - rightHeight) > 1) return false;
+                    heights.push(1 + Math.max(leftHeight, rightHeight));
+                    lastVisited = stack.pop();
+                }
+            }
+        }
+        return true;
     }
     
     @Override
@@ -386,49 +469,104 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         return Math.abs((double)key1.compareTo(key2));
     }
     
+    // Two cursors walking towards each other, O(h) memory instead of a list of all keys.
+    // While low < high there is always another key for the cursor that moves
     @Override
     public boolean checkExistTwoNodesWithSum(int sum) {
         if (root == null) return false;
-        ArrayList<K> values = new ArrayList<>();
-        inorderCollect(root, values);
+        Iterator<K> ascending = iterator();
+        Iterator<K> descending = descendingIterator();
+        K low = ascending.next();
+        K high = descending.next();
         
-        int i = 0;
-        int j = values.size() - 1;
-        
-        while (i < j) {
-            if (!(values.get(i) instanceof Number) || !(values.get(j) instanceof Number)) {
+        while (low.compareTo(high) < 0) {
+            if (!(low instanceof Number) || !(high instanceof Number)) {
                 return false;
             }
             
-            int currentSum = ((Number)values.get(i)).intValue() + ((Number)values.get(j)).intValue();
+            int currentSum = ((Number)low).intValue() + ((Number)high).intValue();
             if (currentSum == sum) return true;
-            else if (currentSum < sum) i++;
-            else j--;
+            else if (currentSum < sum) low = ascending.next();
+            else high = descending.next();
         }
         
         return false;
     }
-    
-    private void inorderCollect(Node x, ArrayList<K> values) {
-        if (x == null) return;
-        inorderCollect(x.left, values);
-        values.add(x.key);
-        inorderCollect(x.right, values);
+
+    // LAZY ITERATION
+    @Override
+    public Iterator<K> iterator() {
+        return new KeyIterator(null, null, false);
+    }
+
+    public Iterator<K> descendingIterator() {
+        return new KeyIterator(null, null, true);
+    }
+
+    // Keys between lo and hi, both included, in ascending order
+    public Iterable<K> range(K lo, K hi) {
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls range() with a null key");
+        return () -> new KeyIterator(lo, hi, false);
+    }
+
+    // Inorder walk with the stack of nodes still to visit, only one root to leaf path at a time.
+    // A null bound means no bound. Changing the tree while iterating gives undefined results
+    private class KeyIterator implements Iterator<K> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private final K lo, hi;
+        private final boolean descending;
+
+        KeyIterator(K lo, K hi, boolean descending) {
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            pushPath(root);
+        }
+
+        // Pushes the nodes we still have to come back to on the way to the first key in range
+        private void pushPath(Node x) {
+            while (x != null) {
+                if (!descending) {
+                    if (lo != null && x.key.compareTo(lo) < 0) {
+                        x = x.right;
+                    } else {
+                        stack.push(x);
+                        x = x.left;
+                    }
+                } else {
+                    if (hi != null && x.key.compareTo(hi) > 0) {
+                        x = x.left;
+                    } else {
+                        stack.push(x);
+                        x = x.right;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) return false;
+            K next = stack.peek().key;
+            if (!descending) return hi == null || next.compareTo(hi) <= 0;
+            return lo == null || next.compareTo(lo) >= 0;
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack.pop();
+            pushPath(descending ? x.left : x.right);
+            return x.key;
+        }
     }
     
     public ArrayList<K> getKeysInOrder() {
         ArrayList<K> keys = new ArrayList<>();
-        collectKeysInOrder(root, keys);
+        morrisInorder(x -> keys.add(x.key));
         return keys;
     }
     
-    private void collectKeysInOrder(Node x, ArrayList<K> keys) {
-        if (x == null) return;
-        collectKeysInOrder(x.left, keys);
-        keys.add(x.key);
-        collectKeysInOrder(x.right, keys);
-    }
-    
     @Override
     public void printPathFromTo(K key1, K key2) {
         if (!contains(key1) || !contains(key2)) {
@@ -468,50 +606,57 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
     }
     
     private boolean findPathToNode(Node node, K key, List<K> path) {
-        if (node == null) return false;
-        
-        path.add(node.key);
-        
-        if (node.key.equals(key)) return true;
-        
-        int cmp = key.compareTo(node.key);
-        boolean found;
-        if (cmp < 0) {
-            found = findPathToNode(node.left, key, path);
-        } else {
-            found = findPathToNode(node.right, key, path);
+        int start = path.size();
+        while (node != null) {
+            path.add(node.key);
+            if (node.key.equals(key)) return true;
+            node = key.compareTo(node.key) < 0 ? node.left : node.right;
         }
-        
-        if (!found) {
-            path.remove(path.size() - 1);
-        }
-        
-        return found;
+
+        path.subList(start, path.size()).clear();
+        return false;
     }
     
     private Node findLCA(Node node, K key1, K key2) {
-        if (node == null) return null;
-        
-        if (key1.compareTo(node.key) < 0 && key2.compareTo(node.key) < 0)
-            return findLCA(node.left, key1, key2);
-            
-        if (key1.compareTo(node.key) > 0 && key2.compareTo(node.key) > 0)
-            return findLCA(node.right, key1, key2);
-            
-        return node;
+        while (node != null) {
+            if (key1.compareTo(node.key) < 0 && key2.compareTo(node.key) < 0) node = node.left;
+            else if (key1.compareTo(node.key) > 0 && key2.compareTo(node.key) > 0) node = node.right;
+            else return node;
+        }
+        return null;
     }
     
+    // Preorder walk; path holds the keys from the root down to the current node, and the
+    // depths stack tells how much of it to keep when we jump back up to a right child
     @Override
     public void printPathsWithSum(int sum) {
+        if (root == null) return;
+
         List<K> path = new ArrayList<>();
-        printPathsWithSum(root, sum, path);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        stack.push(root);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int depth = depths.pop();
+            path.subList(depth, path.size()).clear();
+            path.add(node.key);
+            printPathsEndingAt(path, sum);
+
+            if (node.right != null) {
+                stack.push(node.right);
+                depths.push(depth + 1);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+                depths.push(depth + 1);
+            }
+        }
     }
-    
-    private void printPathsWithSum(Node node, int sum, List<K> path) {
-        if (node == null) return;
-        
-        path.add(node.key);
-        
+
+    private void printPathsEndingAt(List<K> path, int sum) {
         int currentSum = 0;
         for (int i = path.size() - 1; i >= 0; i--) {
             K key = path.get(i);
@@ -537,11 +682,6 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
                 System.out.println();
             }
         }
-
-        printPathsWithSum(node.left, sum, path);
-        printPathsWithSum(node.right, sum, path);
-        
-        path.remove(path.size() - 1);
     }
     
     @Override
@@ -585,36 +725,128 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         return node;
     }
     
-    public static <K extends Comparable<K>> boolean isPostorderArray(K[] array) {
-        if (array == null || array.length == 0) return true;
-        return isPostorderArrayHelper(array, 0, array.length - 1);
+    // Streaming version of createBalancedBSTfromSortedArray: entries sorted by key are read one at a
+    // time, O(n) time and O(log n) memory besides the tree. With a known size the shape is the same
+    public static <K extends Comparable<K>, V> GenericBST<K, V> bulkLoad(Iterator<? extends Map.Entry<K, V>> sorted, int size) {
+        if (size < 0) throw new IllegalArgumentException("size cannot be negative: " + size);
+        GenericBST<K, V> bst = new GenericBST<>();
+        GenericBST<K, V>.BulkLoader loader = bst.new BulkLoader(sorted);
+        bst.root = loader.build(size);
+        if (sorted.hasNext()) throw new IllegalArgumentException("iterator has more than " + size + " entries");
+        return bst;
     }
     
-    private static <K extends Comparable<K>> boolean isPostorderArrayHelper(K[] array, int start, int end) {
-        if (start >= end) return true;
-        
-        K root = array[end];
+    // Unknown size, still of minimal height and height balanced (every node's subtree heights
+    // differ by at most one, what isPerfectlyBalanced checks), though not always the same shape
+    public static <K extends Comparable<K>, V> GenericBST<K, V> bulkLoad(Iterator<? extends Map.Entry<K, V>> sorted) {
+        GenericBST<K, V> bst = new GenericBST<>();
+        GenericBST<K, V>.BulkLoader loader = bst.new BulkLoader(sorted);
+        bst.root = loader.buildAll();
+        return bst;
+    }
+    
+    private class BulkLoader {
+        private final Iterator<? extends Map.Entry<K, V>> sorted;
+        private K previous;
         
-        // Find the first element greater than root
-        int i = start;
-        while (i < end && array[i].compareTo(root) < 0) {
-            i++;
+        BulkLoader(Iterator<? extends Map.Entry<K, V>> sorted) {
+            if (sorted == null) throw new IllegalArgumentException("Iterator cannot be null");
+            this.sorted = sorted;
         }
         
-        // All elements from i to end-1 should be greater than root
-        int j = i;
-        while (j < end) {
-            if (array[j].compareTo(root) <= 0) {
-                return false;
+        private Node next() {
+            if (!sorted.hasNext()) throw new IllegalArgumentException("iterator ran out of entries");
+            Map.Entry<K, V> entry = sorted.next();
+            K key = entry.getKey();
+            if (key == null) throw new IllegalArgumentException("Key cannot be null");
+            if (previous != null && key.compareTo(previous) <= 0) {
+                throw new IllegalArgumentException("keys are not in ascending order: " + key + " after " + previous);
             }
-            j++;
+            previous = key;
+            return new Node(key, entry.getValue());
         }
         
-        // Recursively check left and right subtrees
-        boolean leftIsValid = (i == start) || isPostorderArrayHelper(array, start, i - 1);
-        boolean rightIsValid = (i == end) || isPostorderArrayHelper(array, i, end - 1);
+        // Same split as createBalancedBSTfromSortedArray, recursion depth is log n
+        Node build(int size) {
+            if (size == 0) return null;
+            int leftSize = (size - 1) / 2;
+            Node left = build(leftSize);
+            Node x = next();
+            x.left = left;
+            x.right = build(size - 1 - leftSize);
+            return x;
+        }
         
-        return leftIsValid && rightIsValid;
+        // Binary counter: the spine holds nodes whose left subtree is a finished perfect tree of the
+        // height in leftHeights (0 for empty) and whose right subtree is still missing, lowest on top.
+        // A new entry first completes every spine node whose left subtree is as tall as the
+        // perfect tree finished so far, then waits on the spine with that tree as its left child
+        Node buildAll() {
+            ArrayDeque<Node> spine = new ArrayDeque<>();
+            ArrayDeque<Integer> leftHeights = new ArrayDeque<>();
+            while (sorted.hasNext()) {
+                Node done = null;
+                int doneHeight = 0;
+                while (!spine.isEmpty() && leftHeights.peek() == doneHeight) {
+                    Node x = spine.pop();
+                    leftHeights.pop();
+                    x.right = done;
+                    done = x;
+                    doneHeight++;
+                }
+                Node x = next();
+                x.left = done;
+                spine.push(x);
+                leftHeights.push(doneHeight);
+            }
+            
+            // No more entries: close the spine from the top. What is built so far is never taller
+            // than the left subtree of the next spine node, but it can be a lot shorter. Then x goes
+            // down the right edge of that perfect tree to the subtree as tall as what we have, and
+            // the nodes above it get one level taller, which keeps them within one of their left side
+            Node right = null;
+            int rightHeight = 0;
+            while (!spine.isEmpty()) {
+                Node x = spine.pop();
+                int leftHeight = leftHeights.pop();
+                if (leftHeight - rightHeight <= 1) {
+                    x.right = right;
+                    right = x;
+                } else {
+                    Node left = x.left;
+                    Node parent = left;
+                    for (int height = leftHeight - 1; height > rightHeight; height--) {
+                        parent = parent.right;
+                    }
+                    x.left = parent.right;
+                    x.right = right;
+                    parent.right = x;
+                    right = left;
+                }
+                rightHeight = leftHeight + 1;
+            }
+            return right;
+        }
+    }
+    
+    // Read backwards a postorder array is root, right subtree, left subtree. The stack holds the
+    // current path of nodes still waiting for their left subtree; once we go left of a node,
+    // every later key has to stay below it
+    public static <K extends Comparable<K>> boolean isPostorderArray(K[] array) {
+        if (array == null || array.length == 0) return true;
+
+        ArrayDeque<K> stack = new ArrayDeque<>();
+        K upperBound = null;
+        for (int i = array.length - 1; i >= 0; i--) {
+            K key = array[i];
+            if (upperBound != null && key.compareTo(upperBound) >= 0) return false;
+            while (!stack.isEmpty() && key.compareTo(stack.peek()) < 0) {
+                upperBound = stack.pop();
+            }
+            if (!stack.isEmpty() && key.compareTo(stack.peek()) == 0) return false;
+            stack.push(key);
+        }
+        return true;
     }
     
     public static <K extends Comparable<K>, V> GenericBST<K, V> createBSTfromPostOrderArray(K[] keys, V defaultValue) {
@@ -622,41 +854,35 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
             return null;
         }
         
+        // Same backwards walk as isPostorderArray: a key smaller than the top of the stack is the
+        // left child of the last node popped, otherwise it is the right child of the top
         GenericBST<K, V> bst = new GenericBST<>();
-        bst.root = createBSTfromPostOrderArrayHelper(keys, defaultValue, 0, keys.length - 1, bst);
-        return bst;
-    }
-    
-    private static <K extends Comparable<K>, V> GenericBST<K, V>.Node createBSTfromPostOrderArrayHelper(
-            K[] keys, V defaultValue, int start, int end, GenericBST<K, V> bst) {
-        if (start > end) return null;
-        
-        GenericBST<K, V>.Node root = bst.new Node(keys[end], defaultValue);
-        
-        // Find the first element greater than root
-        int i = start;
-        while (i < end && keys[i].compareTo(keys[end]) < 0) {
-            i++;
+        ArrayDeque<GenericBST<K, V>.Node> stack = new ArrayDeque<>();
+        bst.root = bst.new Node(keys[keys.length - 1], defaultValue);
+        stack.push(bst.root);
+        for (int i = keys.length - 2; i >= 0; i--) {
+            GenericBST<K, V>.Node node = bst.new Node(keys[i], defaultValue);
+            GenericBST<K, V>.Node parent = null;
+            while (!stack.isEmpty() && keys[i].compareTo(stack.peek().key) < 0) {
+                parent = stack.pop();
+            }
+            if (parent != null) parent.left = node;
+            else stack.peek().right = node;
+            stack.push(node);
         }
-        
-        // Create left and right subtrees
-        root.left = createBSTfromPostOrderArrayHelper(keys, defaultValue, start, i - 1, bst);
-        root.right = createBSTfromPostOrderArrayHelper(keys, defaultValue, i, end - 1, bst);
-        
-        return root;
+        return bst;
     }
     
     public int depth(K key) {
-        return depth(root, key, 0);
-    }
-    
-    private int depth(Node x, K key, int currentDepth) {
-        if (x == null) return -1; 
-        
-        int cmp = key.compareTo(x.key);
-        if (cmp == 0) return currentDepth;
-        else if (cmp < 0) return depth(x.left, key, currentDepth + 1);
-        else return depth(x.right, key, currentDepth + 1);
+        Node x = root;
+        int depth = 0;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return depth;
+            x = cmp < 0 ? x.left : x.right;
+            depth++;
+        }
+        return -1;
     }
     
     // Support classes for testing
@@ -763,6 +989,9 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         testIntegerOperations();
         testDesignExercises();
         testNewMethods();
+        testFlatBST();
+        testIterators();
+        testBulkLoad();
     }
 
     private static void testStringStringBST() {
@@ -1046,4 +1275,760 @@ public class GenericBST<K extends Comparable<K>, V> implements GenericBSTInterfa
         GenericBST<Integer, String> invalidBST = createBSTfromPostOrderArray(invalidPostorder, "Default");
         System.out.println("Result (should be null): " + (invalidBST == null ? "null" : "not null"));
     }
+
+    private static void testFlatBST() {
+        System.out.println("\n==== Testing FlatGenericBST against GenericBST ====");
+        int n = 1_000_000;
+        Random random = new Random(42);
+        Integer[] keys = new Integer[n];
+        for (int i = 0; i < n; i++) keys[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+        String value = "value";
+
+        // Keys and the value are shared, so only the tree structure itself is measured
+        long before = usedMemory();
+        GenericBST<Integer, String> linked = new GenericBST<>();
+        for (Integer key : keys) linked.put(key, value);
+        long linkedBytes = usedMemory() - before;
+
+        before = usedMemory();
+        FlatGenericBST<Integer, String> flat = new FlatGenericBST<>(n);
+        for (Integer key : keys) flat.put(key, value);
+        long flatBytes = usedMemory() - before;
+
+        System.out.println("Footprint of " + n + " keys:");
+        System.out.println("  GenericBST (Node objects): " + linkedBytes / n + " bytes/key");
+        System.out.println("  FlatGenericBST (arrays):   " + flatBytes / n + " bytes/key");
+
+        // Both trees got the same keys in the same order, so they have the same shape
+        for (int i = 0; i < n; i += 2) {
+            linked.delete(keys[i]);
+            flat.delete(keys[i]);
+        }
+        for (int i = 0; i < n; i += 4) {
+            linked.put(keys[i], value);
+            flat.put(keys[i], value);
+        }
+
+        boolean same = linked.height() == flat.height() && flat.isBST();
+        for (int i = 0; i < 10_000 && same; i++) {
+            Integer key = random.nextInt(n);
+            same = linked.contains(key) == flat.contains(key)
+                    && Objects.equals(linked.successor(key), flat.successor(key))
+                    && Objects.equals(linked.predecessor(key), flat.predecessor(key))
+                    && linked.height(key) == flat.height(key);
+        }
+        System.out.println("Same answers after deletes and reinserts: " + same);
+        System.out.println("Size: " + flat.size() + ", height: " + flat.height());
+
+        // Sorted inserts make a linked list, recursion would overflow the stack here
+        FlatGenericBST<Integer, Integer> degenerate = new FlatGenericBST<>();
+        for (int i = 0; i < 100_000; i++) degenerate.put(i, i);
+        System.out.println("Degenerate tree height: " + degenerate.height() + ", isBST: " + degenerate.isBST()
+                + ", two nodes with sum 199997: " + degenerate.checkExistTwoNodesWithSum(199_997));
+    }
+
+    private static void testIterators() {
+        System.out.println("\n==== Testing Lazy Iterators ====");
+        GenericBST<Integer, String> bst = new GenericBST<>();
+        int[] keys = {50, 30, 70, 20, 40, 60, 80, 35, 45, 65};
+        for (int key : keys) {
+            bst.put(key, "Value" + key);
+        }
+
+        System.out.print("Ascending: ");
+        for (Integer key : bst) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+
+        System.out.print("Descending: ");
+        Iterator<Integer> descending = bst.descendingIterator();
+        while (descending.hasNext()) {
+            System.out.print(descending.next() + " ");
+        }
+        System.out.println();
+
+        System.out.print("Range [33, 66]: ");
+        for (Integer key : bst.range(33, 66)) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+
+        System.out.print("Range [71, 79]: ");
+        for (Integer key : bst.range(71, 79)) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+
+        System.out.println("Two nodes with sum 100: " + bst.checkExistTwoNodesWithSum(100));
+        System.out.println("Two nodes with sum 151: " + bst.checkExistTwoNodesWithSum(151));
+        System.out.println("Two nodes with sum 160: " + bst.checkExistTwoNodesWithSum(160));
+    }
+
+    private static void testBulkLoad() {
+        System.out.println("\n==== Testing Bulk Load from a Sorted Stream ====");
+        int n = 1_000_000;
+        
+        // Entries are made on the fly, the stream is never stored anywhere
+        GenericBST<Integer, Integer> unknownSize = bulkLoad(sortedEntries(n));
+        System.out.println("Unknown size, " + n + " keys: height " + unknownSize.height()
+                + ", perfectly balanced: " + unknownSize.isPerfectlyBalanced() + ", isBST: " + unknownSize.isBST());
+        
+        GenericBST<Integer, Integer> knownSize = bulkLoad(sortedEntries(n), n);
+        System.out.println("Known size, " + n + " keys: height " + knownSize.height()
+                + ", perfectly balanced: " + knownSize.isPerfectlyBalanced() + ", isBST: " + knownSize.isBST());
+        
+        Integer[] keys = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        GenericBST<Integer, Integer> fromArray = createBalancedBSTfromSortedArray(keys, keys);
+        GenericBST<Integer, Integer> fromStream = bulkLoad(sortedEntries(keys.length), keys.length);
+        System.out.print("From array:  ");
+        fromArray.printLevels();
+        System.out.print("From stream: ");
+        fromStream.printLevels();
+    }
+    
+    // Keys 1..n, each with itself as the value
+    private static Iterator<Map.Entry<Integer, Integer>> sortedEntries(int n) {
+        return new Iterator<Map.Entry<Integer, Integer>>() {
+            private int next = 1;
+            
+            @Override
+            public boolean hasNext() {
+                return next <= n;
+            }
+            
+            @Override
+            public Map.Entry<Integer, Integer> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Integer key = next++;
+                return Map.entry(key, key);
+            }
+        };
+    }
+    
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
+
+
+// GenericBSTInterface on parallel arrays instead of a Node object per key: keys, values and the
+// left/right child numbers are stored by node number, and deleted slots are chained in a free list.
+// No object header or references per node, and the nodes sit next to each other in memory.
+// Every operation is iterative so a degenerate tree can't overflow the stack
+class FlatGenericBST<K extends Comparable<K>, V> implements GenericBSTInterface<K, V> {
+    private static final int NIL = -1;
+
+    private Object[] keys;
+    private Object[] vals;
+    private int[] left;
+    private int[] right;
+    private int root = NIL;
+    private int size;
+    // Slots handed out at least once, the ones after it were never used
+    private int used;
+    // Deleted slots, chained through left[]
+    private int freeList = NIL;
+
+    public FlatGenericBST() {
+        this(16);
+    }
+
+    public FlatGenericBST(int capacity) {
+        capacity = Math.max(1, capacity);
+        keys = new Object[capacity];
+        vals = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int x) {
+        return (K) keys[x];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V val(int x) {
+        return (V) vals[x];
+    }
+
+    private int newNode(K key, V val) {
+        int x;
+        if (freeList != NIL) {
+            x = freeList;
+            freeList = left[x];
+        } else {
+            if (used == keys.length) grow();
+            x = used++;
+        }
+        keys[x] = key;
+        vals[x] = val;
+        left[x] = NIL;
+        right[x] = NIL;
+        size++;
+        return x;
+    }
+
+    private void freeNode(int x) {
+        keys[x] = null;
+        vals[x] = null;
+        right[x] = NIL;
+        left[x] = freeList;
+        freeList = x;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, capacity);
+        vals = Arrays.copyOf(vals, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+    }
+
+    private int findNode(K key) {
+        int x = root;
+        while (x != NIL) {
+            int cmp = key.compareTo(key(x));
+            if (cmp < 0) x = left[x];
+            else if (cmp > 0) x = right[x];
+            else return x;
+        }
+        return NIL;
+    }
+
+    // CORE BST OPERATIONS
+    @Override
+    public void inorder() {
+        IntStack stack = new IntStack();
+        int x = root;
+        while (x != NIL || !stack.isEmpty()) {
+            while (x != NIL) {
+                stack.push(x);
+                x = left[x];
+            }
+            x = stack.pop();
+            System.out.println(key(x) + ": " + val(x));
+            x = right[x];
+        }
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        int x = findNode(key);
+        return x == NIL ? null : val(x);
+    }
+
+    @Override
+    public void put(K key, V val) {
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        insert(key, val);
+    }
+
+    private void insert(K key, V val) {
+        if (root == NIL) {
+            root = newNode(key, val);
+            return;
+        }
+
+        int x = root;
+        while (true) {
+            int cmp = key.compareTo(key(x));
+            if (cmp == 0) {
+                vals[x] = val;
+                return;
+            }
+
+            int child = cmp < 0 ? left[x] : right[x];
+            if (child == NIL) {
+                int node = newNode(key, val);
+                if (cmp < 0) left[x] = node;
+                else right[x] = node;
+                return;
+            }
+            x = child;
+        }
+    }
+
+    @Override
+    public K min() {
+        if (root == NIL) throw new NoSuchElementException("called min() with empty BST");
+        return key(min(root));
+    }
+
+    private int min(int x) {
+        while (left[x] != NIL) x = left[x];
+        return x;
+    }
+
+    @Override
+    public K max() {
+        if (root == NIL) throw new NoSuchElementException("called max() with empty BST");
+        return key(max(root));
+    }
+
+    private int max(int x) {
+        while (right[x] != NIL) x = right[x];
+        return x;
+    }
+
+    @Override
+    public void delete(K key) {
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+
+        int parent = NIL;
+        int x = root;
+        while (x != NIL) {
+            int cmp = key.compareTo(key(x));
+            if (cmp == 0) break;
+            parent = x;
+            x = cmp < 0 ? left[x] : right[x];
+        }
+        if (x == NIL) return;
+
+        // Two children: take the successor's key and value, then remove the successor instead
+        if (left[x] != NIL && right[x] != NIL) {
+            int successorParent = x;
+            int successor = right[x];
+            while (left[successor] != NIL) {
+                successorParent = successor;
+                successor = left[successor];
+            }
+            keys[x] = keys[successor];
+            vals[x] = vals[successor];
+            parent = successorParent;
+            x = successor;
+        }
+
+        // x has at most one child now
+        int child = left[x] != NIL ? left[x] : right[x];
+        if (parent == NIL) root = child;
+        else if (left[parent] == x) left[parent] = child;
+        else right[parent] = child;
+        freeNode(x);
+    }
+
+    // ADDITIONAL OPERATIONS
+    @Override
+    public void preorder() {
+        if (root == NIL) return;
+        IntStack stack = new IntStack();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int x = stack.pop();
+            System.out.println(key(x) + ": " + val(x));
+            if (right[x] != NIL) stack.push(right[x]);
+            if (left[x] != NIL) stack.push(left[x]);
+        }
+    }
+
+    @Override
+    public void postorder() {
+        IntStack stack = new IntStack();
+        int x = root;
+        int lastVisited = NIL;
+        while (x != NIL || !stack.isEmpty()) {
+            if (x != NIL) {
+                stack.push(x);
+                x = left[x];
+            } else {
+                int top = stack.peek();
+                if (right[top] != NIL && right[top] != lastVisited) {
+                    x = right[top];
+                } else {
+                    System.out.println(key(top) + ": " + val(top));
+                    lastVisited = stack.pop();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int height() {
+        return height(root);
+    }
+
+    private int height(int x) {
+        if (x == NIL) return -1;
+
+        IntStack nodes = new IntStack();
+        IntStack depths = new IntStack();
+        nodes.push(x);
+        depths.push(0);
+        int height = 0;
+        while (!nodes.isEmpty()) {
+            int node = nodes.pop();
+            int depth = depths.pop();
+            height = Math.max(height, depth);
+            if (left[node] != NIL) {
+                nodes.push(left[node]);
+                depths.push(depth + 1);
+            }
+            if (right[node] != NIL) {
+                nodes.push(right[node]);
+                depths.push(depth + 1);
+            }
+        }
+        return height;
+    }
+
+    @Override
+    public int height(K key) {
+        int node = findNode(key);
+        if (node == NIL) return -1;
+        return height(node);
+    }
+
+    @Override
+    public boolean isBST() {
+        IntStack stack = new IntStack();
+        int x = root;
+        K previous = null;
+        while (x != NIL || !stack.isEmpty()) {
+            while (x != NIL) {
+                stack.push(x);
+                x = left[x];
+            }
+            x = stack.pop();
+            if (previous != null && key(x).compareTo(previous) <= 0) return false;
+            previous = key(x);
+            x = right[x];
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void spoilValues() {
+        Random random = new Random();
+        if (root == NIL) return;
+
+        IntStack stack = new IntStack();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int x = stack.pop();
+            if (vals[x] instanceof Integer) {
+                vals[x] = (V) Integer.valueOf(random.nextInt(100));
+            } else if (vals[x] instanceof String) {
+                vals[x] = (V) ("Random" + random.nextInt(100));
+            }
+            if (right[x] != NIL) stack.push(right[x]);
+            if (left[x] != NIL) stack.push(left[x]);
+        }
+    }
+
+    @Override
+    public K successor(K key) {
+        int x = root;
+        int successor = NIL;
+
+        while (x != NIL) {
+            int cmp = key.compareTo(key(x));
+            if (cmp < 0) {
+                successor = x;
+                x = left[x];
+            } else if (cmp > 0) {
+                x = right[x];
+            } else {
+                if (right[x] != NIL) {
+                    return key(min(right[x]));
+                }
+                break;
+            }
+        }
+
+        if (x == NIL) return null;
+        return successor != NIL ? key(successor) : null;
+    }
+
+    @Override
+    public K predecessor(K key) {
+        int x = root;
+        int predecessor = NIL;
+
+        while (x != NIL) {
+            int cmp = key.compareTo(key(x));
+            if (cmp > 0) {
+                predecessor = x;
+                x = right[x];
+            } else if (cmp < 0) {
+                x = left[x];
+            } else {
+                if (left[x] != NIL) {
+                    return key(max(left[x]));
+                }
+                break;
+            }
+        }
+
+        if (x == NIL) return null;
+        return predecessor != NIL ? key(predecessor) : null;
+    }
+
+    // Heights of every node bottom up in one postorder walk, then the same check as GenericBST
+    @Override
+    public boolean isPerfectlyBalanced() {
+        int[] heights = new int[used];
+        IntStack stack = new IntStack();
+        int x = root;
+        int lastVisited = NIL;
+        while (x != NIL || !stack.isEmpty()) {
+            if (x != NIL) {
+                stack.push(x);
+                x = left[x];
+            } else {
+                int top = stack.peek();
+                if (right[top] != NIL && right[top] != lastVisited) {
+                    x = right[top];
+                } else {
+                    int leftHeight = left[top] == NIL ? -1 : heights[left[top]];
+                    int rightHeight = right[top] == NIL ? -1 : heights[right[top]];
+                    if (Math.abs(leftHeight - rightHeight) > 1) return false;
+                    heights[top] = 1 + Math.max(leftHeight, rightHeight);
+                    lastVisited = stack.pop();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public V searchIterative(K key) {
+        return get(key);
+    }
+
+    @Override
+    public K minIterative() {
+        if (root == NIL) throw new NoSuchElementException("called minIterative() with empty BST");
+        return key(min(root));
+    }
+
+    @Override
+    public void insertIterative(K key, V val) {
+        if (key == null) throw new IllegalArgumentException("calls insertIterative() with a null key");
+        insert(key, val);
+    }
+
+    // DESIGN EXERCISE OPERATIONS
+    @Override
+    public K searchClosest(K key) {
+        if (root == NIL) return null;
+
+        int closest = NIL;
+        int current = root;
+
+        while (current != NIL) {
+            if (closest == NIL ||
+                Math.abs(distanceBetween(key, key(current))) < Math.abs(distanceBetween(key, key(closest))) ||
+                (Math.abs(distanceBetween(key, key(current))) == Math.abs(distanceBetween(key, key(closest))) && key.compareTo(key(current)) == 0)) {
+                closest = current;
+            }
+
+            int cmp = key.compareTo(key(current));
+            if (cmp == 0) break;
+            else if (cmp < 0) current = left[current];
+            else current = right[current];
+        }
+
+        return closest != NIL ? key(closest) : null;
+    }
+
+    private double distanceBetween(K key1, K key2) {
+        if (key1 instanceof Number && key2 instanceof Number) {
+            return Math.abs(((Number)key1).doubleValue() - ((Number)key2).doubleValue());
+        }
+
+        return Math.abs((double)key1.compareTo(key2));
+    }
+
+    // One cursor walks up from the smallest key and one down from the biggest, O(h) memory
+    @Override
+    public boolean checkExistTwoNodesWithSum(int sum) {
+        if (root == NIL) return false;
+
+        IntStack ascending = new IntStack();
+        IntStack descending = new IntStack();
+        for (int x = root; x != NIL; x = left[x]) ascending.push(x);
+        for (int x = root; x != NIL; x = right[x]) descending.push(x);
+
+        while (!ascending.isEmpty() && !descending.isEmpty() && ascending.peek() != descending.peek()) {
+            K low = key(ascending.peek());
+            K high = key(descending.peek());
+            if (low.compareTo(high) >= 0) return false;
+            if (!(low instanceof Number) || !(high instanceof Number)) return false;
+
+            int currentSum = ((Number)low).intValue() + ((Number)high).intValue();
+            if (currentSum == sum) return true;
+            else if (currentSum < sum) {
+                for (int x = right[ascending.pop()]; x != NIL; x = left[x]) ascending.push(x);
+            } else {
+                for (int x = left[descending.pop()]; x != NIL; x = right[x]) descending.push(x);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void printPathFromTo(K key1, K key2) {
+        if (!contains(key1) || !contains(key2)) {
+            System.out.println("One or both keys not found in the BST");
+            return;
+        }
+
+        // Lowest common ancestor
+        int lca = root;
+        while (true) {
+            if (key1.compareTo(key(lca)) < 0 && key2.compareTo(key(lca)) < 0) lca = left[lca];
+            else if (key1.compareTo(key(lca)) > 0 && key2.compareTo(key(lca)) > 0) lca = right[lca];
+            else break;
+        }
+
+        List<K> pathToKey1 = pathFrom(lca, key1);
+        Collections.reverse(pathToKey1);
+        List<K> pathToKey2 = pathFrom(lca, key2);
+        pathToKey2.remove(0);
+
+        System.out.print("Path from " + key1 + " to " + key2 + ": ");
+        for (K key : pathToKey1) {
+            System.out.print(key + " ");
+        }
+        for (K key : pathToKey2) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+
+    private List<K> pathFrom(int x, K key) {
+        List<K> path = new ArrayList<>();
+        while (x != NIL) {
+            path.add(key(x));
+            int cmp = key.compareTo(key(x));
+            if (cmp == 0) break;
+            x = cmp < 0 ? left[x] : right[x];
+        }
+        return path;
+    }
+
+    // Preorder walk with the current root to node path kept by depth
+    @Override
+    public void printPathsWithSum(int sum) {
+        if (root == NIL) return;
+
+        IntStack nodes = new IntStack();
+        IntStack depths = new IntStack();
+        IntStack path = new IntStack();
+        nodes.push(root);
+        depths.push(0);
+
+        while (!nodes.isEmpty()) {
+            int node = nodes.pop();
+            int depth = depths.pop();
+            while (path.size() > depth) path.pop();
+            path.push(node);
+
+            int currentSum = 0;
+            for (int i = path.size() - 1; i >= 0; i--) {
+                K key = key(path.get(i));
+                int nodeValue;
+
+                if (key instanceof Number) {
+                    nodeValue = ((Number)key).intValue();
+                } else {
+                    try {
+                        nodeValue = Integer.parseInt(key.toString());
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                }
+
+                currentSum += nodeValue;
+
+                if (currentSum == sum) {
+                    System.out.print("Path with sum " + sum + ": ");
+                    for (int j = i; j < path.size(); j++) {
+                        System.out.print(key(path.get(j)) + " ");
+                    }
+                    System.out.println();
+                }
+            }
+
+            if (right[node] != NIL) {
+                nodes.push(right[node]);
+                depths.push(depth + 1);
+            }
+            if (left[node] != NIL) {
+                nodes.push(left[node]);
+                depths.push(depth + 1);
+            }
+        }
+    }
+
+    @Override
+    public void printLevels() {
+        if (root == NIL) return;
+
+        // Every node goes through the queue once
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+
+        System.out.print("Level order: ");
+        while (head < tail) {
+            int node = queue[head++];
+            System.out.print(key(node) + " ");
+
+            if (left[node] != NIL) queue[tail++] = left[node];
+            if (right[node] != NIL) queue[tail++] = right[node];
+        }
+        System.out.println();
+    }
+
+    // Growable stack of node numbers
+    private static class IntStack {
+        private int[] items = new int[32];
+        private int size;
+
+        void push(int item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        int peek() {
+            return items[size - 1];
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
 }
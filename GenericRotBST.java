@@ -1,10 +1,13 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
 
 public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInterface<K, V> {
     
@@ -22,9 +25,17 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
     }
 
     private Node root;         
+    // Weight balanced mode: put and delete rebalance on the way back up using the
+    // rotations below, so the height stays O(log n) even for sorted input
+    private final boolean balanced;
 
     public GenericRotBST() {
+        this(false);
+    }
+    
+    public GenericRotBST(boolean balanced) {
         root = null;
+        this.balanced = balanced;
     }
     
     // Helper to get size of a node (handles null case)
@@ -47,6 +58,7 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
      */
     public void rotateLeft(K key) {
         if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        if (balanced) throw new IllegalStateException("rotations are automatic in balanced mode");
         root = rotateLeft(root, key);
     }
     
@@ -60,17 +72,7 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
             h.right = rotateLeft(h.right, key);
         } else {
             // We found the node to rotate
-            if (h.right == null) return h; // Cannot rotate
-            
-            Node x = h.right;
-            h.right = x.left;
-            x.left = h;
-            
-            // Update sizes
-            updateSize(h);
-            updateSize(x);
-            
-            return x;
+            return rotateLeft(h);
         }
         
         // Update size after recursive call
@@ -83,6 +85,7 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
      */
     public void rotateRight(K key) {
         if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        if (balanced) throw new IllegalStateException("rotations are automatic in balanced mode");
         root = rotateRight(root, key);
     }
     
@@ -96,17 +99,7 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
             h.right = rotateRight(h.right, key);
         } else {
             // We found the node to rotate
-            if (h.left == null) return h; // Cannot rotate
-            
-            Node x = h.left;
-            h.left = x.right;
-            x.right = h;
-            
-            // Update sizes
-            updateSize(h);
-            updateSize(x);
-            
-            return x;
+            return rotateRight(h);
         }
         
         // Update size after recursive call
@@ -114,6 +107,61 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
         return h;
     }
     
+    private Node rotateLeft(Node h) {
+        if (h.right == null) return h; // Cannot rotate
+        
+        Node x = h.right;
+        h.right = x.left;
+        x.left = h;
+        
+        // Update sizes
+        updateSize(h);
+        updateSize(x);
+        
+        return x;
+    }
+    
+    private Node rotateRight(Node h) {
+        if (h.left == null) return h; // Cannot rotate
+        
+        Node x = h.left;
+        h.left = x.right;
+        x.right = h;
+        
+        // Update sizes
+        updateSize(h);
+        updateSize(x);
+        
+        return x;
+    }
+    
+    // Weight balancing with the parameters from Hirai and Yamamoto (the ones Haskell's Data.Map uses):
+    // a subtree may weigh at most DELTA times its sibling, the weight being size + 1. When it weighs
+    // more, one rotation fixes it, or two if the inner grandchild is GAMMA times heavier than the outer.
+    // One step per level is enough after a single insert or delete
+    private static final int DELTA = 3;
+    private static final int GAMMA = 2;
+    
+    private Node balance(Node x) {
+        updateSize(x);
+        if (!balanced) return x;
+        
+        int leftWeight = size(x.left) + 1;
+        int rightWeight = size(x.right) + 1;
+        if (rightWeight > DELTA * leftWeight) {
+            if (size(x.right.left) + 1 >= GAMMA * (size(x.right.right) + 1)) {
+                x.right = rotateRight(x.right);
+            }
+            x = rotateLeft(x);
+        } else if (leftWeight > DELTA * rightWeight) {
+            if (size(x.left.right) + 1 >= GAMMA * (size(x.left.left) + 1)) {
+                x.left = rotateLeft(x.left);
+            }
+            x = rotateRight(x);
+        }
+        return x;
+    }
+    
     // Core BST operations with size maintenance
     
     @Override
@@ -161,8 +209,7 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
         else x.val = val;
         
         // Update size of this node
-        updateSize(x);
-        return x;
+        return balance(x);
     }
 
     @Override
@@ -214,15 +261,13 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
         }
         
         // Update size
-        updateSize(x);
-        return x;
+        return balance(x);
     }
     
     private Node deleteMin(Node x) {
         if (x.left == null) return x.right;
         x.left = deleteMin(x.left);
-        updateSize(x);
-        return x;
+        return balance(x);
     }
 
     // Additional operations from the interface
@@ -392,6 +437,11 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
     @Override
     public void insertIterative(K key, V val) {
         if (key == null) throw new IllegalArgumentException("calls insertIterative() with a null key");
+        if (balanced) {
+            // Rebalancing needs the path back up, which put keeps on the call stack
+            put(key, val);
+            return;
+        }
         
         Node newNode = new Node(key, val);
         if (root == null) {
@@ -646,6 +696,61 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
         return size(root);
     }
     
+    // Order statistics, all O(h) thanks to the size field
+    
+    // Number of keys smaller than key, the key itself doesn't have to be in the tree
+    public int rank(K key) {
+        if (key == null) throw new IllegalArgumentException("calls rank() with a null key");
+        int rank = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                rank += 1 + size(x.left);
+                x = x.right;
+            } else {
+                return rank + size(x.left);
+            }
+        }
+        return rank;
+    }
+    
+    // Key with the given rank, select(0) is the min
+    public K select(int rank) {
+        if (rank < 0 || rank >= size()) throw new IllegalArgumentException("argument to select() is invalid: " + rank);
+        Node x = root;
+        while (true) {
+            int leftSize = size(x.left);
+            if (rank < leftSize) {
+                x = x.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
+    }
+    
+    // Number of keys between lo and hi, both included
+    public int countInRange(K lo, K hi) {
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls countInRange() with a null key");
+        if (lo.compareTo(hi) > 0) return 0;
+        int count = rank(hi) - rank(lo);
+        if (findNode(root, hi) != null) count++;
+        return count;
+    }
+    
+    // Nearest rank percentile: the smallest key with at least p percent of the keys <= it
+    public K percentile(double p) {
+        if (p < 0 || p > 100) throw new IllegalArgumentException("percentile must be between 0 and 100: " + p);
+        if (root == null) throw new NoSuchElementException("called percentile() with empty BST");
+        int rank = (int) Math.ceil(p / 100.0 * size()) - 1;
+        return select(Math.max(0, rank));
+    }
+    
     // A simple test method to demonstrate rotations and size maintenance
     public static void main(String[] args) {
         GenericRotBST<Integer, String> bst = new GenericRotBST<>();
@@ -687,6 +792,168 @@ public class GenericRotBST<K extends Comparable<K>, V> implements GenericBSTInte
         // Test size of subtrees
         System.out.println("\nSize of subtree rooted at 5: " + bst.getSize(5));
         System.out.println("Size of subtree rooted at 7: " + bst.getSize(7));
+        
+        // Order statistics
+        System.out.println("\nRank of 6: " + bst.rank(6));
+        System.out.println("Select(0): " + bst.select(0) + ", select(3): " + bst.select(3));
+        System.out.println("Keys in [3, 7]: " + bst.countInRange(3, 7));
+        System.out.println("Median: " + bst.percentile(50) + ", p90: " + bst.percentile(90));
+        
+        benchmarkOrderStatistics(200_000, 10_000);
+        
+        // Balanced mode
+        GenericRotBST<Integer, String> balancedBst = new GenericRotBST<>(true);
+        for (int i = 1; i <= 15; i++) {
+            balancedBst.put(i, "Value" + i);
+        }
+        System.out.println("\nBalanced mode after inserting 1..15 in order:");
+        balancedBst.printLevels();
+        System.out.println("Height: " + balancedBst.height());
+        
+        benchmarkBalancing(200_000);
+    }
+    
+    // Height and throughput of the plain and the weight balanced tree on the same key streams
+    private static void benchmarkBalancing(int n) {
+        System.out.println("\n==== Balanced mode vs plain BST (" + n + " operations per phase) ====");
+        Random random = new Random(42);
+        
+        int[] sequential = new int[n];
+        int[] uniform = new int[n];
+        int[] zipfian = new int[n];
+        for (int i = 0; i < n; i++) {
+            sequential[i] = i;
+            uniform[i] = random.nextInt();
+        }
+        // Zipf with s = 1 over n distinct keys: key k comes up with probability proportional to 1/k
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1.0 / (k + 1);
+            cdf[k] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * total);
+            if (rank < 0) rank = -rank - 1;
+            // Scrambled so the hot keys are spread over the key space instead of being the smallest
+            zipfian[i] = Math.min(rank, n - 1) * 0x9E3779B1;
+        }
+        
+        System.out.println(String.format("%-11s %-9s %8s %14s %14s %14s", "Keys", "Tree", "height", "put ops/s", "get ops/s", "delete ops/s"));
+        String[] names = { "sequential", "random", "zipfian" };
+        int[][] streams = { sequential, uniform, zipfian };
+        for (int s = 0; s < streams.length; s++) {
+            for (boolean balanced : new boolean[] { false, true }) {
+                String prefix = String.format("%-11s %-9s", names[s], balanced ? "balanced" : "plain");
+                try {
+                    runBalancingBenchmark(prefix, streams[s], balanced);
+                } catch (StackOverflowError e) {
+                    System.out.println(prefix + " stack overflow");
+                }
+            }
+        }
+    }
+    
+    private static void runBalancingBenchmark(String prefix, int[] keys, boolean balanced) {
+        GenericRotBST<Integer, Integer> tree = new GenericRotBST<>(balanced);
+        
+        long start = System.nanoTime();
+        for (int key : keys) {
+            tree.put(key, key);
+        }
+        double putRate = keys.length / ((System.nanoTime() - start) / 1e9);
+        int height = tree.height();
+        
+        long found = 0;
+        start = System.nanoTime();
+        for (int key : keys) {
+            if (tree.get(key) != null) found++;
+        }
+        double getRate = keys.length / ((System.nanoTime() - start) / 1e9);
+        
+        start = System.nanoTime();
+        for (int i = 0; i < keys.length; i += 2) {
+            tree.delete(keys[i]);
+        }
+        double deleteRate = (keys.length / 2) / ((System.nanoTime() - start) / 1e9);
+        
+        if (found != keys.length || !tree.isBST()) throw new IllegalStateException("benchmark tree is broken");
+        System.out.println(String.format("%s %8d %14.0f %14.0f %14.0f", prefix, height, putRate, getRate, deleteRate));
+    }
+    
+    // Latency histogram style workload: samples keep arriving and we ask for percentiles in between.
+    // The tree answers from the sizes, the snapshot way copies and sorts the samples for every query
+    private static void benchmarkOrderStatistics(int samples, int queries) {
+        System.out.println("\n==== Order statistics vs sorting a snapshot (" + samples + " samples, " + queries + " queries) ====");
+        Random random = new Random(42);
+        int[] latencies = new int[samples];
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < samples; i++) {
+            // Exponential latencies in ns, made unique so the tree keeps every sample
+            int latency = (int) (-Math.log(1 - random.nextDouble()) * 1_000_000);
+            while (!seen.add(latency)) latency++;
+            latencies[i] = latency;
+        }
+        
+        GenericRotBST<Integer, Integer> tree = new GenericRotBST<>();
+        long start = System.nanoTime();
+        for (int latency : latencies) {
+            tree.put(latency, latency);
+        }
+        System.out.printf("Building the tree: %.1f ms, height %d%n", (System.nanoTime() - start) / 1e6, tree.height());
+        
+        double[] percentiles = { 50, 90, 99, 99.9 };
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            checksum += tree.percentile(percentiles[q % percentiles.length]);
+            checksum += tree.rank(latencies[q]);
+            checksum += tree.countInRange(latencies[q], latencies[q] + 1_000_000);
+        }
+        double treeTime = (System.nanoTime() - start) / 1e6;
+        
+        // Sorting once is only fair if nothing changes, so sort once per 1000 queries as if
+        // new samples had arrived in between
+        long snapshotChecksum = 0;
+        int[] sorted = null;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            if (q % 1000 == 0) {
+                sorted = Arrays.copyOf(latencies, latencies.length);
+                Arrays.sort(sorted);
+            }
+            int rank = (int) Math.ceil(percentiles[q % percentiles.length] / 100.0 * sorted.length) - 1;
+            snapshotChecksum += sorted[Math.max(0, rank)];
+            snapshotChecksum += lowerBound(sorted, latencies[q]);
+            snapshotChecksum += upperBound(sorted, latencies[q] + 1_000_000) - lowerBound(sorted, latencies[q]);
+        }
+        double snapshotTime = (System.nanoTime() - start) / 1e6;
+        
+        System.out.printf("Tree rank/select/countInRange: %.1f ms%n", treeTime);
+        System.out.printf("Sorted snapshot every 1000 queries: %.1f ms (%d sorts)%n", snapshotTime, (queries + 999) / 1000);
+        System.out.println("Same answers: " + (checksum == snapshotChecksum));
+    }
+    
+    // First index with a value >= key
+    private static int lowerBound(int[] sorted, int key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    
+    // First index with a value > key
+    private static int upperBound(int[] sorted, int key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
     }
 }
 
@@ -1,7 +1,11 @@
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 public class GenericSortedD<K extends Comparable<K>, V> implements MySortedMap<K, V> {
     private class Node {
@@ -170,6 +174,11 @@ public class GenericSortedD<K extends Comparable<K>, V> implements MySortedMap<K
             x.right = remove(x.right, temp.key);
         }
         
+        return balance(x);
+    }
+    
+    // Updates the height of x and fixes it with one or two rotations if one side got two taller
+    private Node balance(Node x) {
         // Update height
         x.height = Math.max(height(x.left), height(x.right)) + 1;
         
@@ -203,6 +212,73 @@ public class GenericSortedD<K extends Comparable<K>, V> implements MySortedMap<K
         return x;
     }
     
+    // BATCH MERGE
+    // Puts every entry of a batch sorted by key, the batch wins for keys that are already there.
+    // The batch becomes a tree first (bulkLoad), then both trees are merged with split and join,
+    // O(m log(n/m + 1)) for a batch of m entries into n instead of m root to leaf puts
+    public void putAll(Iterable<? extends Map.Entry<K, V>> sortedBatch) {
+        if (sortedBatch == null) throw new IllegalArgumentException("Batch cannot be null");
+        GenericSortedD<K, V> batch = bulkLoad(sortedBatch.iterator());
+        root = union(root, batch.root);
+    }
+    
+    // The batch root splits the tree, both halves are merged with the matching batch subtree and
+    // joined back with the batch root in the middle
+    private Node union(Node tree, Node batch) {
+        if (tree == null) return batch;
+        if (batch == null) return tree;
+        
+        Split split = new Split();
+        split(tree, batch.key, split);
+        Node left = union(split.left, batch.left);
+        Node right = union(split.right, batch.right);
+        return join(left, batch, right);
+    }
+    
+    private class Split {
+        Node left, right;
+    }
+    
+    // Keys smaller than key end up in result.left, bigger ones in result.right, the node with key
+    // itself (if any) is dropped
+    private void split(Node x, K key, Split result) {
+        if (x == null) {
+            result.left = null;
+            result.right = null;
+            return;
+        }
+        
+        int cmp = key.compareTo(x.key);
+        if (cmp < 0) {
+            split(x.left, key, result);
+            result.right = join(result.right, x, x.right);
+        } else if (cmp > 0) {
+            split(x.right, key, result);
+            result.left = join(x.left, x, result.left);
+        } else {
+            result.left = x.left;
+            result.right = x.right;
+        }
+    }
+    
+    // AVL tree of left, middle and right, every key in left smaller than middle and every key in
+    // right bigger. The shorter tree is hung on the edge of the taller one where the heights
+    // match, then the path back up is rebalanced. O(difference in height)
+    private Node join(Node left, Node middle, Node right) {
+        if (height(left) > height(right) + 1) {
+            left.right = join(left.right, middle, right);
+            return balance(left);
+        }
+        if (height(right) > height(left) + 1) {
+            right.left = join(left, middle, right.left);
+            return balance(right);
+        }
+        middle.left = left;
+        middle.right = right;
+        middle.height = Math.max(height(left), height(right)) + 1;
+        return middle;
+    }
+    
     private Node min(Node x) {
         if (x == null) return null;
         if (x.left == null) return x;
@@ -243,6 +319,193 @@ public class GenericSortedD<K extends Comparable<K>, V> implements MySortedMap<K
         return max(x.right);
     }
     
+    // ORDERED NAVIGATION
+    // Greatest key <= key, null if there is none
+    @Override
+    public K floorKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node x = root;
+        K floor = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                floor = x.key;
+                x = x.right;
+            }
+        }
+        return floor;
+    }
+    
+    // Smallest key >= key, null if there is none
+    @Override
+    public K ceilingKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node x = root;
+        K ceiling = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                ceiling = x.key;
+                x = x.left;
+            }
+        }
+        return ceiling;
+    }
+    
+    // Views like SortedMap's: from keys are included, to keys are not. Nothing is copied, every
+    // iteration walks the tree as it is at that moment, O(log n) to the first entry and O(1)
+    // amortized for each next one. Don't change the map while iterating
+    @Override
+    public Iterable<Map.Entry<K, V>> headMap(K toKey) {
+        if (toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(null, toKey);
+    }
+    
+    @Override
+    public Iterable<Map.Entry<K, V>> tailMap(K fromKey) {
+        if (fromKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(fromKey, null);
+    }
+    
+    @Override
+    public Iterable<Map.Entry<K, V>> subMap(K fromKey, K toKey) {
+        if (fromKey == null || toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        if (fromKey.compareTo(toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return range(fromKey, toKey);
+    }
+    
+    private Iterable<Map.Entry<K, V>> range(K fromKey, K toKey) {
+        return () -> new RangeIterator<>(fromKey, toKey, x -> new AbstractMap.SimpleEntry<>(x.key, x.value));
+    }
+    
+    // Inorder walk from the first key >= fromKey, the stack holds the nodes still to visit on
+    // one root to leaf path. A null bound means no bound
+    private class RangeIterator<T> implements Iterator<T> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private final K toKey;
+        private final Function<Node, T> element;
+        
+        RangeIterator(K fromKey, K toKey, Function<Node, T> element) {
+            this.toKey = toKey;
+            this.element = element;
+            Node x = root;
+            while (x != null) {
+                if (fromKey != null && x.key.compareTo(fromKey) < 0) {
+                    x = x.right;
+                } else {
+                    stack.push(x);
+                    x = x.left;
+                }
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (toKey == null || stack.peek().key.compareTo(toKey) < 0);
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack.pop();
+            for (Node y = x.right; y != null; y = y.left) {
+                stack.push(y);
+            }
+            return element.apply(x);
+        }
+    }
+    
+    // BULK LOADING
+    // Build the tree straight from entries sorted by key instead of one put (and rebalance) per entry.
+    // O(n) time, and besides the tree itself only O(log n) memory, the entries are read one at a time
+    
+    // When the number of entries is known the tree is built top down, every node gets half of the rest
+    public static <K extends Comparable<K>, V> GenericSortedD<K, V> bulkLoad(Iterator<? extends Map.Entry<K, V>> sorted, int size) {
+        if (size < 0) throw new IllegalArgumentException("size cannot be negative: " + size);
+        GenericSortedD<K, V> map = new GenericSortedD<>();
+        GenericSortedD<K, V>.BulkLoader loader = map.new BulkLoader(sorted);
+        map.root = loader.build(size);
+        if (sorted.hasNext()) throw new IllegalArgumentException("iterator has more than " + size + " entries");
+        return map;
+    }
+    
+    public static <K extends Comparable<K>, V> GenericSortedD<K, V> bulkLoad(Iterator<? extends Map.Entry<K, V>> sorted) {
+        GenericSortedD<K, V> map = new GenericSortedD<>();
+        GenericSortedD<K, V>.BulkLoader loader = map.new BulkLoader(sorted);
+        map.root = loader.buildAll();
+        return map;
+    }
+    
+    private class BulkLoader {
+        private final Iterator<? extends Map.Entry<K, V>> sorted;
+        private K previous;
+        
+        BulkLoader(Iterator<? extends Map.Entry<K, V>> sorted) {
+            if (sorted == null) throw new IllegalArgumentException("Iterator cannot be null");
+            this.sorted = sorted;
+        }
+        
+        private Node next() {
+            if (!sorted.hasNext()) throw new IllegalArgumentException("iterator ran out of entries");
+            Map.Entry<K, V> entry = sorted.next();
+            K key = entry.getKey();
+            if (key == null) throw new IllegalArgumentException("Key cannot be null");
+            if (previous != null && key.compareTo(previous) <= 0) {
+                throw new IllegalArgumentException("keys are not in ascending order: " + key + " after " + previous);
+            }
+            previous = key;
+            return new Node(key, entry.getValue());
+        }
+        
+        // Recursion depth is the height of the result, log n
+        Node build(int size) {
+            if (size == 0) return null;
+            int leftSize = (size - 1) / 2;
+            Node left = build(leftSize);
+            Node x = next();
+            x.left = left;
+            x.right = build(size - 1 - leftSize);
+            x.height = 1 + Math.max(height(x.left), height(x.right));
+            return x;
+        }
+        
+        // Unknown length works like a binary counter. The spine holds nodes whose left subtree is
+        // a finished perfect tree and whose right subtree is still missing, lowest on top.
+        // A new entry first completes every spine node whose left subtree is as tall as the
+        // perfect tree finished so far, then waits on the spine with that tree as its left child
+        Node buildAll() {
+            ArrayDeque<Node> spine = new ArrayDeque<>();
+            while (sorted.hasNext()) {
+                Node done = null;
+                while (!spine.isEmpty() && height(spine.peek().left) == height(done)) {
+                    Node x = spine.pop();
+                    x.right = done;
+                    x.height = height(done) + 1;
+                    done = x;
+                }
+                Node x = next();
+                x.left = done;
+                x.height = height(done) + 1;
+                spine.push(x);
+            }
+            
+            // No more entries: close the spine from the top with the AVL join. What is built so far
+            // is never taller than the left subtree of the next spine node, but it can be a lot shorter
+            Node right = null;
+            while (!spine.isEmpty()) {
+                Node x = spine.pop();
+                right = join(x.left, x, right);
+            }
+            return right;
+        }
+    }
+    
     // Test client
     public static void main(String[] args) {
         // Test our AVL Map implementation
@@ -312,6 +575,92 @@ public class GenericSortedD<K extends Comparable<K>, V> implements MySortedMap<K
             System.out.print(key + " ");
         }
         System.out.println();
+        
+        // Ordered navigation
+        System.out.println("\nFloor of 4: " + avlMap.floorKey(4) + ", ceiling of 4: " + avlMap.ceilingKey(4));
+        System.out.println("Floor of -1: " + avlMap.floorKey(-1) + ", ceiling of 11: " + avlMap.ceilingKey(11));
+        System.out.print("headMap(3): ");
+        for (Map.Entry<Integer, String> entry : avlMap.headMap(3)) {
+            System.out.print(entry.getKey() + " ");
+        }
+        System.out.print("\ntailMap(8): ");
+        for (Map.Entry<Integer, String> entry : avlMap.tailMap(8)) {
+            System.out.print(entry.getKey() + " ");
+        }
+        System.out.print("\nsubMap(2, 8): ");
+        for (Map.Entry<Integer, String> entry : avlMap.subMap(2, 8)) {
+            System.out.print(entry.getKey() + "=" + entry.getValue() + " ");
+        }
+        System.out.println();
+        
+        // Rebuilding a big map from a sorted snapshot
+        int n = 1_000_000;
+        System.out.println("\nRebuilding a map of " + n + " entries from a sorted snapshot");
+        GenericSortedD<Integer, Integer> big = new GenericSortedD<>();
+        for (int i = 0; i < n; i++) {
+            big.put(i, i);
+        }
+        Iterable<Map.Entry<Integer, Integer>> snapshot = big.getEntries();
+        
+        // Best of three rounds, the first ones also pay for JIT compilation and heap growth
+        GenericSortedD<Integer, Integer> byPuts = null, known = null, unknown = null;
+        double putsTime = Double.MAX_VALUE, knownTime = Double.MAX_VALUE, unknownTime = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            byPuts = new GenericSortedD<>();
+            for (Map.Entry<Integer, Integer> entry : snapshot) {
+                byPuts.put(entry.getKey(), entry.getValue());
+            }
+            putsTime = Math.min(putsTime, (System.nanoTime() - start) / 1e6);
+            
+            start = System.nanoTime();
+            known = bulkLoad(snapshot.iterator(), n);
+            knownTime = Math.min(knownTime, (System.nanoTime() - start) / 1e6);
+            
+            start = System.nanoTime();
+            unknown = bulkLoad(snapshot.iterator());
+            unknownTime = Math.min(unknownTime, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("%d puts: %.1f ms, height %d%n", n, putsTime, byPuts.height(byPuts.root));
+        System.out.printf("bulkLoad with known size: %.1f ms, height %d%n", knownTime, known.height(known.root));
+        System.out.printf("bulkLoad with unknown size: %.1f ms, height %d%n", unknownTime, unknown.height(unknown.root));
+        System.out.println("Same keys: " + (unknown.firstKey() == 0 && unknown.lastKey() == n - 1 && unknown.get(n / 3) == n / 3));
+        
+        // Merging sorted batches into the big map, every second batch key is new
+        System.out.println("\nMerging sorted batches into the " + n + " entry map");
+        // The first round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (int m : new int[] { 100, 10_000, 100_000 }) {
+                List<Map.Entry<Integer, Integer>> batch = new ArrayList<>();
+                int step = 2 * n / m;
+                for (int i = 0; i < m; i++) {
+                    int key = i * step + (i % 2 == 0 ? 0 : n);
+                    batch.add(new AbstractMap.SimpleEntry<>(key, -key));
+                }
+                batch.sort(Map.Entry.comparingByKey());
+            
+                GenericSortedD<Integer, Integer> byPutAll = bulkLoad(snapshot.iterator(), n);
+                GenericSortedD<Integer, Integer> byPut = bulkLoad(snapshot.iterator(), n);
+            
+                long start = System.nanoTime();
+                for (Map.Entry<Integer, Integer> entry : batch) {
+                    byPut.put(entry.getKey(), entry.getValue());
+                }
+                double putTime = (System.nanoTime() - start) / 1e6;
+            
+                start = System.nanoTime();
+                byPutAll.putAll(batch);
+                double putAllTime = (System.nanoTime() - start) / 1e6;
+            
+                boolean same = byPutAll.height(byPutAll.root) <= byPut.height(byPut.root) + 1;
+                for (Map.Entry<Integer, Integer> entry : batch) {
+                    same &= entry.getValue().equals(byPutAll.get(entry.getKey()));
+                }
+                if (round == 1) {
+                    System.out.printf("batch of %d: %.2f ms with put, %.2f ms with putAll, all there: %b%n", m, putTime, putAllTime, same);
+                }
+            }
+        }
     }
 }
 
@@ -327,4 +676,9 @@ interface MySortedMap<K extends Comparable<K>, V> {
     Iterable<Map.Entry<K, V>> getEntries();
     K firstKey();
     K lastKey();
+    K floorKey(K key);
+    K ceilingKey(K key);
+    Iterable<Map.Entry<K, V>> headMap(K toKey);
+    Iterable<Map.Entry<K, V>> tailMap(K fromKey);
+    Iterable<Map.Entry<K, V>> subMap(K fromKey, K toKey);
 }
@@ -1,5 +1,21 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
 
 class Stopwatch {
     private long startTime;
@@ -39,6 +55,16 @@ class Person {
         }
     }
 
+    // For loaders that already parsed the date
+    public Person(String id, String firstName, String lastName, int day, int month, int year) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.day = day;
+        this.month = month;
+        this.year = year;
+    }
+
     public String getId() {
         return id;
     }
@@ -63,6 +89,11 @@ class Person {
         return year;
     }
 
+    // Birth date packed as yyyymmdd, ordering the keys orders the dates
+    public int getBirthDateKey() {
+        return year * 10000 + month * 100 + day;
+    }
+
     public int getAge() {
         Calendar currentCal = Calendar.getInstance();
         int currentYear = currentCal.get(Calendar.YEAR);
@@ -74,112 +105,1440 @@ class Person {
             age--;
         }
 
-        return age;
-    }
+        return age;
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + firstName + " " + lastName + " " +
+                String.format("%02d/%02d/%04d", day, month, year);
+    }
+}
+
+interface Sorter2<T> {
+    void sort(T[] array, Comparator<T> comparator);
+
+    // Puts the k smallest elements in order at the front of the array, the rest is left in any order.
+    // Quickselect does the O(n) part and this sorter only sorts the first k
+    default void partialSort(T[] array, int k, Comparator<T> comparator) {
+        TopK.partialSort(this, array, k, comparator);
+    }
+}
+
+// Helpers for getting the k smallest elements without sorting everything
+class TopK {
+    // Below this many elements per chunk the parallel top-K doesn't split any more
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    public static <T> void partialSort(Sorter2<T> sorter, T[] array, int k, Comparator<T> comparator) {
+        if (array == null || k <= 0) return;
+        if (k >= array.length) {
+            sorter.sort(array, comparator);
+            return;
+        }
+
+        select(array, k, comparator);
+        T[] front = Arrays.copyOf(array, k);
+        sorter.sort(front, comparator);
+        System.arraycopy(front, 0, array, 0, k);
+    }
+
+    // Quickselect: afterwards array[0, k) holds the k smallest elements in any order.
+    // Falls back to a heap when the pivots keep being bad so it never goes quadratic
+    public static <T> void select(T[] array, int k, Comparator<T> comparator) {
+        if (k <= 0 || k >= array.length) return;
+
+        int left = 0, right = array.length - 1;
+        int target = k - 1;
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(array.length));
+
+        while (left < right) {
+            if (budget-- == 0) {
+                heapSelect(array, left, right + 1, k - left, comparator);
+                return;
+            }
+
+            // Same partition as QuickSorter2, afterwards [left, j] <= x <= [i, right]
+            int i = left, j = right;
+            T x = array[left + (right - left) / 2];
+            do {
+                while (comparator.compare(array[i], x) < 0) i++;
+                while (comparator.compare(array[j], x) > 0) j--;
+
+                if (i <= j) {
+                    T temp = array[i];
+                    array[i] = array[j];
+                    array[j] = temp;
+                    i++;
+                    j--;
+                }
+            } while (i <= j);
+
+            if (target <= j) right = j;
+            else if (target >= i) left = i;
+            else return;
+        }
+    }
+
+    // Keeps a max-heap of the m smallest seen so far in array[from, from + m), O(n log m)
+    private static <T> void heapSelect(T[] array, int from, int to, int m, Comparator<T> comparator) {
+        for (int i = m / 2 - 1; i >= 0; i--) {
+            siftDown(array, from, i, m, comparator);
+        }
+        for (int i = from + m; i < to; i++) {
+            if (comparator.compare(array[i], array[from]) < 0) {
+                T temp = array[i];
+                array[i] = array[from];
+                array[from] = temp;
+                siftDown(array, from, 0, m, comparator);
+            }
+        }
+    }
+
+    // Max-heap stored in array[offset, offset + size)
+    private static <T> void siftDown(T[] array, int offset, int i, int size, Comparator<T> comparator) {
+        T current = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && comparator.compare(array[offset + child + 1], array[offset + child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(array[offset + child], current) <= 0) break;
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = current;
+    }
+
+    // The k smallest elements in order, as a new array. Every chunk keeps its own bounded heap
+    // of its k smallest and the heaps are merged two by two on the way back up; the input isn't changed
+    public static <T> T[] parallelSmallest(T[] array, int k, Comparator<T> comparator, ForkJoinPool pool) {
+        k = Math.max(0, Math.min(k, array.length));
+        T[] result = Arrays.copyOf(array, k);
+        if (k == 0) return result;
+
+        BoundedMaxHeap<T> heap = pool.invoke(new TopKTask<>(array, 0, array.length, k, comparator));
+
+        // Emptying a max-heap gives the elements from biggest to smallest
+        for (int i = heap.size() - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+
+    @SuppressWarnings("serial")
+    private static class TopKTask<T> extends RecursiveTask<BoundedMaxHeap<T>> {
+        private final T[] array;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final Comparator<T> comparator;
+
+        TopKTask(T[] array, int from, int to, int k, Comparator<T> comparator) {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected BoundedMaxHeap<T> compute() {
+            if (to - from <= Math.max(PARALLEL_THRESHOLD, 4 * k)) {
+                BoundedMaxHeap<T> heap = new BoundedMaxHeap<>(k, comparator);
+                for (int i = from; i < to; i++) {
+                    heap.offer(array[i]);
+                }
+                return heap;
+            }
+
+            int mid = from + (to - from) / 2;
+            TopKTask<T> leftTask = new TopKTask<>(array, from, mid, k, comparator);
+            leftTask.fork();
+            BoundedMaxHeap<T> right = new TopKTask<>(array, mid, to, k, comparator).compute();
+            BoundedMaxHeap<T> left = leftTask.join();
+
+            left.offerAll(right);
+            return left;
+        }
+    }
+}
+
+// Max-heap that only keeps the capacity smallest elements offered to it
+class BoundedMaxHeap<T> {
+    private final Object[] items;
+    private final Comparator<T> comparator;
+    private int size;
+
+    BoundedMaxHeap(int capacity, Comparator<T> comparator) {
+        this.items = new Object[capacity];
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(T item) {
+        if (size < items.length) {
+            items[size] = item;
+            siftUp(size++);
+        } else if (comparator.compare(item, top()) < 0) {
+            items[0] = item;
+            siftDown(0);
+        }
+    }
+
+    public void offerAll(BoundedMaxHeap<T> other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.get(i));
+        }
+    }
+
+    // Removes and returns the biggest element kept
+    public T poll() {
+        T top = top();
+        items[0] = items[--size];
+        items[size] = null;
+        if (size > 0) siftDown(0);
+        return top;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int i) {
+        return (T) items[i];
+    }
+
+    private T top() {
+        return get(0);
+    }
+
+    private void siftUp(int i) {
+        T item = get(i);
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (comparator.compare(get(parent), item) >= 0) break;
+            items[i] = items[parent];
+            i = parent;
+        }
+        items[i] = item;
+    }
+
+    private void siftDown(int i) {
+        T item = get(i);
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && comparator.compare(get(child + 1), get(child)) > 0) child++;
+            if (comparator.compare(get(child), item) <= 0) break;
+            items[i] = items[child];
+            i = child;
+        }
+        items[i] = item;
+    }
+}
+
+// Compares two rows of a table by their row numbers
+interface IndexComparator {
+    int compare(int row1, int row2);
+}
+
+// Persons stored column by column: the names are dictionary encoded with the dictionary in sorted order,
+// so comparing two codes is comparing the names, and the birth date is a packed yyyymmdd int.
+// Sorting only reorders the permutation, the columns never move
+class PersonTable {
+    private final String[] ids;
+    private final String[] firstNameDictionary;
+    private final String[] lastNameDictionary;
+    private final int[] firstNameCodes;
+    private final int[] lastNameCodes;
+    private final int[] birthDates;
+    private final int[] permutation;
+
+    private static final IntMergeSorter INT_SORTER = new IntMergeSorter();
+
+    private PersonTable(String[] ids, String[] firstNameDictionary, int[] firstNameCodes,
+                        String[] lastNameDictionary, int[] lastNameCodes, int[] birthDates) {
+        this.ids = ids;
+        this.firstNameDictionary = firstNameDictionary;
+        this.firstNameCodes = firstNameCodes;
+        this.lastNameDictionary = lastNameDictionary;
+        this.lastNameCodes = lastNameCodes;
+        this.birthDates = birthDates;
+        this.permutation = new int[ids.length];
+        resetOrder();
+    }
+
+    public static PersonTable fromPersons(Person[] persons) {
+        int n = persons.length;
+        String[] ids = new String[n];
+        String[] firstNames = new String[n];
+        String[] lastNames = new String[n];
+        int[] birthDates = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            ids[i] = persons[i].getId();
+            firstNames[i] = persons[i].getFirstName();
+            lastNames[i] = persons[i].getLastName();
+            birthDates[i] = persons[i].getBirthDateKey();
+        }
+
+        int[] firstNameCodes = new int[n];
+        int[] lastNameCodes = new int[n];
+        String[] firstNameDictionary = encode(firstNames, firstNameCodes);
+        String[] lastNameDictionary = encode(lastNames, lastNameCodes);
+
+        return new PersonTable(ids, firstNameDictionary, firstNameCodes, lastNameDictionary, lastNameCodes, birthDates);
+    }
+
+    // Fills codes with the rank of every value among the distinct values and returns those values sorted
+    private static String[] encode(String[] values, int[] codes) {
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String value : values) {
+            ranks.put(value, 0);
+        }
+
+        String[] dictionary = ranks.keySet().toArray(new String[0]);
+        Arrays.sort(dictionary);
+        for (int i = 0; i < dictionary.length; i++) {
+            ranks.put(dictionary[i], i);
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            codes[i] = ranks.get(values[i]);
+        }
+        return dictionary;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // Row stored at the given position of the current order
+    public int row(int position) {
+        return permutation[position];
+    }
+
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public String getFirstName(int row) {
+        return firstNameDictionary[firstNameCodes[row]];
+    }
+
+    public String getLastName(int row) {
+        return lastNameDictionary[lastNameCodes[row]];
+    }
+
+    public int getBirthDateKey(int row) {
+        return birthDates[row];
+    }
+
+    public Person toPerson(int row) {
+        int date = birthDates[row];
+        return new Person(ids[row], getFirstName(row), getLastName(row), date % 100, date / 100 % 100, date / 10000);
+    }
+
+    public IndexComparator byLastName() {
+        return (row1, row2) -> Integer.compare(lastNameCodes[row1], lastNameCodes[row2]);
+    }
+
+    public IndexComparator byFirstName() {
+        return (row1, row2) -> Integer.compare(firstNameCodes[row1], firstNameCodes[row2]);
+    }
+
+    // Youngest first, same order as the age comparator
+    public IndexComparator byAge() {
+        return (row1, row2) -> Integer.compare(birthDates[row2], birthDates[row1]);
+    }
+
+    // Back to the load order
+    public void resetOrder() {
+        for (int i = 0; i < permutation.length; i++) {
+            permutation[i] = i;
+        }
+    }
+
+    // Sorts the permutation in place with IntMergeSorter, nothing is boxed. Stable, so sorting by
+    // one column and then by another keeps the first order among equal values of the second
+    public void sort(IndexComparator comparator) {
+        INT_SORTER.sort(permutation, comparator);
+    }
+
+    // Runs any Sorter2 on the row numbers instead, only the permutation changes.
+    // The rows are boxed once because Sorter2 works on objects, the compares only touch the int columns
+    public void sort(Sorter2<Integer> sorter, IndexComparator comparator) {
+        Integer[] rows = new Integer[permutation.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = permutation[i];
+        }
+
+        sorter.sort(rows, (row1, row2) -> comparator.compare(row1, row2));
+
+        for (int i = 0; i < rows.length; i++) {
+            permutation[i] = rows[i];
+        }
+    }
+}
+
+class InsertionSorter2<T> implements Sorter2<T> {
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return;
+
+        for (int i = 1; i < array.length; i++) {
+            T current = array[i];
+            int j = i - 1;
+
+            while (j >= 0 && comparator.compare(array[j], current) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = current;
+        }
+    }
+} 
+/// Unused because of performance reasons but it is useful for small arrays and for Timsort which is Arrays.sort here
+
+class MergeSorter2<T> implements Sorter2<T> {
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        sortCountingMoves(array, comparator);
+    }
+
+    // Same sort, also returns how many element copies it did to compare memory traffic with
+    // PingPongMergeSorter2. The count is passed up the recursion, so the sorter keeps no state
+    public long sortCountingMoves(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return 0;
+
+        @SuppressWarnings("unchecked")
+        T[] tempArray = (T[]) new Object[array.length];
+        return mergeSort(array, tempArray, 0, array.length - 1, comparator);
+    }
+
+    private long mergeSort(T[] array, T[] tempArray, int left, int right, Comparator<T> comparator) {
+        long moved = 0;
+        if (left < right) {
+            int mid = left + (right - left) / 2;
+            moved += mergeSort(array, tempArray, left, mid, comparator);
+            moved += mergeSort(array, tempArray, mid + 1, right, comparator);
+            moved += merge(array, tempArray, left, mid, right, comparator);
+        }
+        return moved;
+    }
+
+    private long merge(T[] array, T[] tempArray, int left, int mid, int right, Comparator<T> comparator) {
+        for (int i = left; i <= right; i++) {
+            tempArray[i] = array[i];
+        }
+
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+
+        while (i <= mid && j <= right) {
+            if (comparator.compare(tempArray[i], tempArray[j]) <= 0) {
+                array[k++] = tempArray[i++];
+            } else {
+                array[k++] = tempArray[j++];
+            }
+        }
+
+        while (i <= mid) {
+            array[k++] = tempArray[i++];
+        }
+
+        return (right - left + 1) + (k - left);
+    }
+}
+
+// Merge sort without the copy back: every level merges from one array into the other and the
+// roles swap at the next level, so each element moves once per level instead of twice
+class PingPongMergeSorter2<T> implements Sorter2<T> {
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        sortCountingMoves(array, comparator);
+    }
+
+    // Same sort, also returns how many element copies it did, like MergeSorter2.sortCountingMoves
+    public long sortCountingMoves(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return 0;
+
+        // Both arrays start with the same content, the sorted result ends up in array
+        @SuppressWarnings("unchecked")
+        T[] tempArray = (T[]) Arrays.copyOf(array, array.length, Object[].class);
+        return array.length + mergeSort(tempArray, array, 0, array.length - 1, comparator);
+    }
+
+    // Sorts [left, right] into target, source holds the same elements on entry and is used as scratch
+    private long mergeSort(T[] source, T[] target, int left, int right, Comparator<T> comparator) {
+        if (left >= right) return 0;
+
+        int mid = left + (right - left) / 2;
+        long moved = mergeSort(target, source, left, mid, comparator);
+        moved += mergeSort(target, source, mid + 1, right, comparator);
+        merge(source, target, left, mid, right, comparator);
+        return moved + (right - left + 1);
+    }
+
+    private void merge(T[] source, T[] target, int left, int mid, int right, Comparator<T> comparator) {
+        // Already in order, still has to land in target
+        if (comparator.compare(source[mid], source[mid + 1]) <= 0) {
+            System.arraycopy(source, left, target, left, right - left + 1);
+            return;
+        }
+
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+
+        while (i <= mid && j <= right) {
+            if (comparator.compare(source[i], source[j]) <= 0) {
+                target[k++] = source[i++];
+            } else {
+                target[k++] = source[j++];
+            }
+        }
+
+        System.arraycopy(source, i, target, k, mid - i + 1);
+        System.arraycopy(source, j, target, k + (mid - i + 1), right - j + 1);
+    }
+}
+
+// Adaptive merge sort in the style of TimSort: it merges the runs already in the input instead of
+// splitting down to single elements, so nearly sorted input costs close to n comparisons.
+// Descending runs are reversed, short runs are extended with binary insertion sort,
+// merges skip the parts already in place and gallop when one run keeps winning
+class NaturalMergeSorter2<T> implements Sorter2<T> {
+    private static final int MIN_MERGE = 32;
+    private static final int MIN_GALLOP = 7;
+
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return;
+
+        int n = array.length;
+        if (n < MIN_MERGE) {
+            int runEnd = countRunAndMakeAscending(array, 0, n, comparator);
+            binaryInsertionSort(array, 0, n, runEnd, comparator);
+            return;
+        }
+
+        // Everything a sort changes lives in its own RunMerger, so one sorter can be shared between threads
+        RunMerger<T> merger = new RunMerger<>(array, comparator);
+        int minRun = minRunLength(n);
+        int low = 0;
+        while (low < n) {
+            int runEnd = countRunAndMakeAscending(array, low, n, comparator);
+
+            // Short run, extend it to minRun elements
+            if (runEnd - low < minRun) {
+                int forced = Math.min(n, low + minRun);
+                binaryInsertionSort(array, low, forced, runEnd, comparator);
+                runEnd = forced;
+            }
+
+            merger.pushRun(low, runEnd - low);
+            merger.mergeCollapse();
+            low = runEnd;
+        }
+        merger.mergeForceCollapse();
+    }
+
+    // Same minimum run length as TimSort, between MIN_MERGE / 2 and MIN_MERGE
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= (n & 1);
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    // End of the run starting at low, a strictly descending run is reversed so it can't break stability
+    private static <T> int countRunAndMakeAscending(T[] array, int low, int high, Comparator<T> comparator) {
+        int runEnd = low + 1;
+        if (runEnd == high) return high;
+
+        if (comparator.compare(array[runEnd++], array[low]) < 0) {
+            while (runEnd < high && comparator.compare(array[runEnd], array[runEnd - 1]) < 0) runEnd++;
+            reverse(array, low, runEnd);
+        } else {
+            while (runEnd < high && comparator.compare(array[runEnd], array[runEnd - 1]) >= 0) runEnd++;
+        }
+        return runEnd;
+    }
+
+    private static <T> void reverse(T[] array, int low, int high) {
+        high--;
+        while (low < high) {
+            T temp = array[low];
+            array[low++] = array[high];
+            array[high--] = temp;
+        }
+    }
+
+    // [low, start) is already sorted, inserts every element of [start, high) at its place
+    private static <T> void binaryInsertionSort(T[] array, int low, int high, int start, Comparator<T> comparator) {
+        for (; start < high; start++) {
+            T pivot = array[start];
+            int position = upperBound(array, low, start, pivot, comparator);
+            System.arraycopy(array, position, array, position + 1, start - position);
+            array[position] = pivot;
+        }
+    }
+
+    private static <T> int lowerBound(T[] array, int from, int to, T key, Comparator<T> comparator) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(array[mid], key) < 0) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    private static <T> int upperBound(T[] array, int from, int to, T key, Comparator<T> comparator) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(array[mid], key) <= 0) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    // The run stack and scratch array of one sort, like the TimSort instance in java.util
+    private static class RunMerger<T> {
+        private final T[] array;
+        private final T[] tempArray;
+        private final Comparator<T> comparator;
+        // Run lengths on the stack grow at least like Fibonacci numbers, 49 is enough for any int size
+        private final int[] runBase = new int[49];
+        private final int[] runLength = new int[49];
+        private int stackSize;
+
+        @SuppressWarnings("unchecked")
+        RunMerger(T[] array, Comparator<T> comparator) {
+            this.array = array;
+            this.tempArray = (T[]) new Object[array.length];
+            this.comparator = comparator;
+        }
+
+        void pushRun(int base, int length) {
+            runBase[stackSize] = base;
+            runLength[stackSize] = length;
+            stackSize++;
+        }
+
+        // Keeps the run lengths on the stack decreasing faster than Fibonacci so the merges stay balanced
+        void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLength[i - 1] <= runLength[i] + runLength[i + 1]
+                        || i > 1 && runLength[i - 2] <= runLength[i] + runLength[i - 1]) {
+                    if (runLength[i - 1] < runLength[i + 1]) i--;
+                } else if (runLength[i] > runLength[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        // Merges runs i and i + 1 of the stack
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int length1 = runLength[i];
+            int base2 = runBase[i + 1];
+            int length2 = runLength[i + 1];
+
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            stackSize--;
+
+            // Already in order, a[mid] <= a[mid + 1]
+            if (comparator.compare(array[base2 - 1], array[base2]) <= 0) return;
+
+            // The start of run 1 that is not bigger than the first of run 2 is already in place,
+            // and so is the end of run 2 that is not smaller than the last of run 1
+            int start = gallopUpperBound(array, base1, base2, array[base2]);
+            int end = gallopLowerBound(array, base2, base2 + length2, array[base2 - 1]);
+            mergeLow(start, base2, end);
+        }
+
+        // Merges [start, mid) and [mid, end): the left run goes to tempArray and the merge writes from the left
+        private void mergeLow(int start, int mid, int end) {
+            System.arraycopy(array, start, tempArray, start, mid - start);
+
+            int i = start;
+            int j = mid;
+            int k = start;
+            int leftWins = 0;
+            int rightWins = 0;
+
+            while (i < mid && j < end) {
+                if (comparator.compare(array[j], tempArray[i]) < 0) {
+                    array[k++] = array[j++];
+                    leftWins = 0;
+
+                    // The right run keeps winning, find how many more of it go before tempArray[i] at once
+                    if (++rightWins >= MIN_GALLOP && j < end) {
+                        int last = gallopLowerBound(array, j, end, tempArray[i]);
+                        System.arraycopy(array, j, array, k, last - j);
+                        k += last - j;
+                        j = last;
+                        rightWins = 0;
+                    }
+                } else {
+                    array[k++] = tempArray[i++];
+                    rightWins = 0;
+
+                    if (++leftWins >= MIN_GALLOP && i < mid) {
+                        int last = gallopUpperBound(tempArray, i, mid, array[j]);
+                        System.arraycopy(tempArray, i, array, k, last - i);
+                        k += last - i;
+                        i = last;
+                        leftWins = 0;
+                    }
+                }
+            }
+
+            // What is left of the right run is already in place
+            System.arraycopy(tempArray, i, array, k, mid - i);
+        }
+
+        // First index in [from, to) whose element is >= key, searching 1, 2, 4, ... positions ahead first
+        private int gallopLowerBound(T[] source, int from, int to, T key) {
+            int step = 1;
+            int low = from;
+            while (from + step - 1 < to && comparator.compare(source[from + step - 1], key) < 0) {
+                low = from + step;
+                step <<= 1;
+            }
+            return lowerBound(source, low, Math.min(to, from + step - 1), key, comparator);
+        }
+
+        // First index in [from, to) whose element is > key, searching 1, 2, 4, ... positions ahead first
+        private int gallopUpperBound(T[] source, int from, int to, T key) {
+            int step = 1;
+            int low = from;
+            while (from + step - 1 < to && comparator.compare(source[from + step - 1], key) <= 0) {
+                low = from + step;
+                step <<= 1;
+            }
+            return upperBound(source, low, Math.min(to, from + step - 1), key, comparator);
+        }
+
+        // No more runs, merge what is left on the stack
+        void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLength[i - 1] < runLength[i + 1]) i--;
+                mergeAt(i);
+            }
+        }
+    }
+}
+
+// Merge sort on a ForkJoinPool, both halves are sorted in parallel and the merge itself
+// is split by binary search so the top levels don't run on a single core
+class ParallelMergeSorter2<T> implements Sorter2<T> {
+    private static final int DEFAULT_CUTOFF = 8192;
+
+    private final int cutoff;
+    private final ForkJoinPool pool;
+
+    public ParallelMergeSorter2() {
+        this(DEFAULT_CUTOFF, ForkJoinPool.commonPool());
+    }
+
+    // Ranges of at most cutoff elements are sorted and merged sequentially
+    public ParallelMergeSorter2(int cutoff, ForkJoinPool pool) {
+        if (cutoff < 2) throw new IllegalArgumentException("Cutoff must be at least 2");
+        this.cutoff = cutoff;
+        this.pool = pool;
+    }
+
+    // The k smallest come from per-chunk heaps merged in parallel, then one pass moves everything
+    // before the k-th smallest to the front. Equal keys may come out in any order here
+    @Override
+    public void partialSort(T[] array, int k, Comparator<T> comparator) {
+        if (array == null || k <= 0) return;
+        if (k >= array.length) {
+            sort(array, comparator);
+            return;
+        }
+
+        T[] smallest = TopK.parallelSmallest(array, k, comparator, pool);
+        T kth = smallest[k - 1];
+
+        // First everything smaller than the k-th smallest, then copies of it until k are in front
+        int front = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (comparator.compare(array[i], kth) < 0) swap(array, i, front++);
+        }
+        for (int i = front; i < array.length && front < k; i++) {
+            if (comparator.compare(array[i], kth) == 0) swap(array, i, front++);
+        }
+
+        T[] sortedFront = Arrays.copyOf(array, k);
+        sort(sortedFront, comparator);
+        System.arraycopy(sortedFront, 0, array, 0, k);
+    }
+
+    private static <T> void swap(T[] array, int i, int j) {
+        T temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return;
+
+        // One buffer shared by every task, each task only touches its own range of it
+        @SuppressWarnings("unchecked")
+        T[] tempArray = (T[]) new Object[array.length];
+        pool.invoke(new SortTask(array, tempArray, 0, array.length, comparator));
+    }
+
+    @SuppressWarnings("serial")
+    private class SortTask extends RecursiveAction {
+        private final T[] array;
+        private final T[] tempArray;
+        private final int from;
+        private final int to;
+        private final Comparator<T> comparator;
+
+        SortTask(T[] array, T[] tempArray, int from, int to, Comparator<T> comparator) {
+            this.array = array;
+            this.tempArray = tempArray;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= cutoff) {
+                sequentialSort(array, tempArray, from, to - 1, comparator);
+                return;
+            }
+
+            int mid = from + (to - from) / 2;
+            invokeAll(new SortTask(array, tempArray, from, mid, comparator),
+                      new SortTask(array, tempArray, mid, to, comparator));
+
+            // Already in order, nothing to merge
+            if (comparator.compare(array[mid - 1], array[mid]) <= 0) return;
+
+            System.arraycopy(array, from, tempArray, from, to - from);
+            new MergeTask(tempArray, from, mid, mid, to, array, from, comparator).compute();
+        }
+    }
+
+    // Merges src[leftFrom, leftTo) and src[rightFrom, rightTo) into dst starting at dstFrom
+    @SuppressWarnings("serial")
+    private class MergeTask extends RecursiveAction {
+        private final T[] src;
+        private final int leftFrom, leftTo, rightFrom, rightTo;
+        private final T[] dst;
+        private final int dstFrom;
+        private final Comparator<T> comparator;
+
+        MergeTask(T[] src, int leftFrom, int leftTo, int rightFrom, int rightTo,
+                  T[] dst, int dstFrom, Comparator<T> comparator) {
+            this.src = src;
+            this.leftFrom = leftFrom;
+            this.leftTo = leftTo;
+            this.rightFrom = rightFrom;
+            this.rightTo = rightTo;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int leftLength = leftTo - leftFrom;
+            int rightLength = rightTo - rightFrom;
+
+            if (leftLength + rightLength <= cutoff) {
+                sequentialMerge();
+                return;
+            }
+
+            // Split the longer side in the middle and find where its pivot falls in the other side,
+            // equal keys from the left stay in front of equal keys from the right so the sort is stable
+            int leftSplit, rightSplit;
+            if (leftLength >= rightLength) {
+                leftSplit = leftFrom + leftLength / 2;
+                rightSplit = lowerBound(src, rightFrom, rightTo, src[leftSplit], comparator);
+            } else {
+                rightSplit = rightFrom + rightLength / 2;
+                leftSplit = upperBound(src, leftFrom, leftTo, src[rightSplit], comparator);
+            }
+
+            int dstSplit = dstFrom + (leftSplit - leftFrom) + (rightSplit - rightFrom);
+            invokeAll(new MergeTask(src, leftFrom, leftSplit, rightFrom, rightSplit, dst, dstFrom, comparator),
+                      new MergeTask(src, leftSplit, leftTo, rightSplit, rightTo, dst, dstSplit, comparator));
+        }
+
+        private void sequentialMerge() {
+            int i = leftFrom;
+            int j = rightFrom;
+            int k = dstFrom;
+
+            while (i < leftTo && j < rightTo) {
+                if (comparator.compare(src[i], src[j]) <= 0) {
+                    dst[k++] = src[i++];
+                } else {
+                    dst[k++] = src[j++];
+                }
+            }
+
+            System.arraycopy(src, i, dst, k, leftTo - i);
+            System.arraycopy(src, j, dst, k + (leftTo - i), rightTo - j);
+        }
+    }
+
+    // First index in [from, to) whose element is >= key
+    private static <T> int lowerBound(T[] array, int from, int to, T key, Comparator<T> comparator) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(array[mid], key) < 0) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    // First index in [from, to) whose element is > key
+    private static <T> int upperBound(T[] array, int from, int to, T key, Comparator<T> comparator) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(array[mid], key) <= 0) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    private static <T> void sequentialSort(T[] array, T[] tempArray, int left, int right, Comparator<T> comparator) {
+        if (left >= right) return;
+
+        int mid = left + (right - left) / 2;
+        sequentialSort(array, tempArray, left, mid, comparator);
+        sequentialSort(array, tempArray, mid + 1, right, comparator);
+
+        if (comparator.compare(array[mid], array[mid + 1]) <= 0) return;
+
+        System.arraycopy(array, left, tempArray, left, right - left + 1);
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+
+        while (i <= mid && j <= right) {
+            if (comparator.compare(tempArray[i], tempArray[j]) <= 0) {
+                array[k++] = tempArray[i++];
+            } else {
+                array[k++] = tempArray[j++];
+            }
+        }
+
+        while (i <= mid) {
+            array[k++] = tempArray[i++];
+        }
+    }
+}
+
+// QuickSort unique from DSA course :)
+class QuickSorter2<T> implements Sorter2<T> {
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return;
+        quickSort(array, array.length, 0, array.length - 1, comparator);
+    }
+
+    private void quickSort(T[] array, int arr_size, int left, int right, Comparator<T> comparator) {
+        int i = left, j = right;
+        T x = array[left + (right - left)/2];
+        
+        do {
+            while (comparator.compare(array[i], x) < 0) i++;
+            while (comparator.compare(array[j], x) > 0) j--;
+            
+            if (i <= j) {
+                swap(array, i, j);
+                i++;
+                j--;
+            }
+        } while (i <= j);
+        
+        if (left < j) quickSort(array, arr_size, left, j, comparator);
+        if (right > i) quickSort(array, arr_size, i, right, comparator);
+    }
+
+    private void swap(T[] array, int i, int j) {
+        T temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
+
+// Same sorters specialized for int[], no boxing and no comparator call per comparison
+interface IntSorter {
+    void sort(int[] array);
+}
+
+class IntMergeSorter implements IntSorter {
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length <= 1) return;
+
+        int[] tempArray = new int[array.length];
+        mergeSort(array, tempArray, 0, array.length - 1);
+    }
+
+    private void mergeSort(int[] array, int[] tempArray, int left, int right) {
+        if (left < right) {
+            int mid = left + (right - left) / 2;
+            mergeSort(array, tempArray, left, mid);
+            mergeSort(array, tempArray, mid + 1, right);
+            merge(array, tempArray, left, mid, right);
+        }
+    }
+
+    private void merge(int[] array, int[] tempArray, int left, int mid, int right) {
+        System.arraycopy(array, left, tempArray, left, right - left + 1);
+
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+
+        while (i <= mid && j <= right) {
+            if (tempArray[i] <= tempArray[j]) {
+                array[k++] = tempArray[i++];
+            } else {
+                array[k++] = tempArray[j++];
+            }
+        }
+
+        while (i <= mid) {
+            array[k++] = tempArray[i++];
+        }
+    }
+
+    // Same merge sort ordering the ints by comparator instead of by value, e.g. row numbers of a
+    // PersonTable by one of its columns. Stable like MergeSorter2
+    public void sort(int[] array, IndexComparator comparator) {
+        if (array == null || array.length <= 1) return;
+
+        int[] tempArray = new int[array.length];
+        mergeSort(array, tempArray, 0, array.length - 1, comparator);
+    }
+
+    private void mergeSort(int[] array, int[] tempArray, int left, int right, IndexComparator comparator) {
+        if (left < right) {
+            int mid = left + (right - left) / 2;
+            mergeSort(array, tempArray, left, mid, comparator);
+            mergeSort(array, tempArray, mid + 1, right, comparator);
+            merge(array, tempArray, left, mid, right, comparator);
+        }
+    }
+
+    private void merge(int[] array, int[] tempArray, int left, int mid, int right, IndexComparator comparator) {
+        System.arraycopy(array, left, tempArray, left, right - left + 1);
+
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+
+        while (i <= mid && j <= right) {
+            if (comparator.compare(tempArray[i], tempArray[j]) <= 0) {
+                array[k++] = tempArray[i++];
+            } else {
+                array[k++] = tempArray[j++];
+            }
+        }
+
+        while (i <= mid) {
+            array[k++] = tempArray[i++];
+        }
+    }
+}
+
+class IntQuickSorter implements IntSorter {
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length <= 1) return;
+        quickSort(array, 0, array.length - 1);
+    }
+
+    private void quickSort(int[] array, int left, int right) {
+        int i = left, j = right;
+        int x = array[left + (right - left) / 2];
+
+        do {
+            while (array[i] < x) i++;
+            while (array[j] > x) j--;
+
+            if (i <= j) {
+                int temp = array[i];
+                array[i] = array[j];
+                array[j] = temp;
+                i++;
+                j--;
+            }
+        } while (i <= j);
+
+        if (left < j) quickSort(array, left, j);
+        if (right > i) quickSort(array, i, right);
+    }
+}
+
+// LSD radix sort, 4 passes of 8 bits, the sign bit is flipped so negatives come first
+class IntRadixSorter implements IntSorter {
+    private static final int BITS = 8;
+    private static final int BUCKETS = 1 << BITS;
+    private static final int MASK = BUCKETS - 1;
+
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length <= 1) return;
+
+        int[] source = array;
+        int[] target = new int[array.length];
+        int[] counts = new int[BUCKETS];
+
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS) {
+            Arrays.fill(counts, 0);
+            for (int value : source) {
+                counts[digit(value, shift)]++;
+            }
+
+            int position = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int count = counts[b];
+                counts[b] = position;
+                position += count;
+            }
+
+            for (int value : source) {
+                target[counts[digit(value, shift)]++] = value;
+            }
+
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        // An even number of passes leaves the result back in array
+    }
+
+    private static int digit(int value, int shift) {
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & MASK;
+    }
+}
+
+// Production QuickSort: dual pivot partitioning, keys equal to a pivot are gathered next to it,
+// insertion sort for small ranges, a loop instead of recursion on the biggest part
+// and heapsort once the depth goes over 2 * log n, so O(n log n) even on adversarial input
+class IntroQuickSorter2<T> implements Sorter2<T> {
+    private static final int INSERTION_SORT_THRESHOLD = 27;
+
+    @Override
+    public void sort(T[] array, Comparator<T> comparator) {
+        if (array == null || array.length <= 1) return;
+
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(array.length));
+        introSort(array, 0, array.length - 1, depthLimit, comparator);
+    }
+
+    private void introSort(T[] array, int left, int right, int depthLimit, Comparator<T> comparator) {
+        while (true) {
+            int length = right - left + 1;
+            if (length < INSERTION_SORT_THRESHOLD) {
+                insertionSort(array, left, right, comparator);
+                return;
+            }
+            if (depthLimit-- == 0) {
+                heapSort(array, left, right, comparator);
+                return;
+            }
+
+            // Pivots at a third and two thirds, moved to the ends
+            int third = length / 3;
+            int e1 = left + third;
+            int e2 = right - third;
+            if (comparator.compare(array[e1], array[e2]) > 0) swap(array, e1, e2);
+            swap(array, left, e1);
+            swap(array, right, e2);
+            T pivot1 = array[left];
+            T pivot2 = array[right];
+
+            // [left + 1, less) < pivot1, [less, k) between the pivots, (great, right - 1] > pivot2
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                T current = array[k];
+                if (comparator.compare(current, pivot1) < 0) {
+                    swap(array, k, less++);
+                } else if (comparator.compare(current, pivot2) > 0) {
+                    while (k < great && comparator.compare(array[great], pivot2) > 0) great--;
+                    swap(array, k, great--);
+                    if (comparator.compare(array[k], pivot1) < 0) swap(array, k, less++);
+                }
+            }
+            less--;
+            great++;
+            swap(array, left, less);
+            swap(array, right, great);
+
+            // Middle part is [middleLeft, middleRight], keys equal to a pivot can be moved out of it
+            int middleLeft = less + 1;
+            int middleRight = great - 1;
+            if (comparator.compare(pivot1, pivot2) == 0) {
+                // Both pivots are equal so the whole middle is equal to them, it is already in place
+                middleRight = middleLeft - 1;
+            } else if (middleRight - middleLeft > length * 4 / 7) {
+                // A middle this big usually means many duplicates of the pivots, worth an extra pass
+                for (int k = middleLeft; k <= middleRight; k++) {
+                    T current = array[k];
+                    if (comparator.compare(current, pivot1) == 0) {
+                        swap(array, k, middleLeft++);
+                    } else if (comparator.compare(current, pivot2) == 0) {
+                        while (k < middleRight && comparator.compare(array[middleRight], pivot2) == 0) middleRight--;
+                        swap(array, k, middleRight--);
+                        if (comparator.compare(array[k], pivot1) == 0) swap(array, k, middleLeft++);
+                    }
+                }
+            }
+
+            // Recurse on the two smaller parts (each at most half) and keep looping on the biggest one
+            int leftLength = less - left;
+            int middleLength = middleRight - middleLeft + 1;
+            int rightLength = right - great;
+
+            if (leftLength >= middleLength && leftLength >= rightLength) {
+                introSort(array, middleLeft, middleRight, depthLimit, comparator);
+                introSort(array, great + 1, right, depthLimit, comparator);
+                right = less - 1;
+            } else if (middleLength >= rightLength) {
+                introSort(array, left, less - 1, depthLimit, comparator);
+                introSort(array, great + 1, right, depthLimit, comparator);
+                left = middleLeft;
+                right = middleRight;
+            } else {
+                introSort(array, left, less - 1, depthLimit, comparator);
+                introSort(array, middleLeft, middleRight, depthLimit, comparator);
+                left = great + 1;
+            }
+        }
+    }
+
+    private void insertionSort(T[] array, int left, int right, Comparator<T> comparator) {
+        for (int i = left + 1; i <= right; i++) {
+            T current = array[i];
+            int j = i - 1;
+
+            while (j >= left && comparator.compare(array[j], current) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = current;
+        }
+    }
+
+    private void heapSort(T[] array, int left, int right, Comparator<T> comparator) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; i--) {
+            siftDown(array, left, i, length, comparator);
+        }
+        for (int end = length - 1; end > 0; end--) {
+            swap(array, left, left + end);
+            siftDown(array, left, 0, end, comparator);
+        }
+    }
+
+    // Max-heap stored in array[offset, offset + length)
+    private void siftDown(T[] array, int offset, int i, int length, Comparator<T> comparator) {
+        T current = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < length) {
+            if (child + 1 < length && comparator.compare(array[offset + child + 1], array[offset + child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(array[offset + child], current) <= 0) break;
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = current;
+    }
+
+    private void swap(T[] array, int i, int j) {
+        T temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
+
+// LSD radix sort of persons on the packed yyyymmdd birth date, youngest first like the age comparator.
+// The keys are computed once, then every pass is a counting sort on 11 bits of them
+class PersonBirthDateRadixSorter {
+    private static final int BITS = 11;
+    private static final int BUCKETS = 1 << BITS;
+    private static final int MASK = BUCKETS - 1;
+
+    public void sort(Person[] persons) {
+        if (persons == null || persons.length <= 1) return;
+
+        int n = persons.length;
+        int[] keys = new int[n];
+        int maxKey = Integer.MIN_VALUE;
+        int minKey = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            keys[i] = persons[i].getBirthDateKey();
+            maxKey = Math.max(maxKey, keys[i]);
+            minKey = Math.min(minKey, keys[i]);
+        }
+
+        // Youngest first means latest date first, so sort maxKey - key ascending
+        for (int i = 0; i < n; i++) {
+            keys[i] = maxKey - keys[i];
+        }
+        int range = maxKey - minKey;
+
+        Person[] personsSource = persons;
+        Person[] personsTarget = new Person[n];
+        int[] keysSource = keys;
+        int[] keysTarget = new int[n];
+        int[] counts = new int[BUCKETS];
+
+        // Only as many passes as the spread of the dates needs
+        for (int shift = 0; shift == 0 || (range >>> shift) != 0; shift += BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(keysSource[i] >>> shift) & MASK]++;
+            }
+
+            int position = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int count = counts[b];
+                counts[b] = position;
+                position += count;
+            }
 
-    @Override
-    public String toString() {
-        return id + " " + firstName + " " + lastName + " " +
-                String.format("%02d/%02d/%04d", day, month, year);
+            for (int i = 0; i < n; i++) {
+                int target = counts[(keysSource[i] >>> shift) & MASK]++;
+                personsTarget[target] = personsSource[i];
+                keysTarget[target] = keysSource[i];
+            }
+
+            Person[] personsSwap = personsSource;
+            personsSource = personsTarget;
+            personsTarget = personsSwap;
+            int[] keysSwap = keysSource;
+            keysSource = keysTarget;
+            keysTarget = keysSwap;
+        }
+
+        if (personsSource != persons) {
+            System.arraycopy(personsSource, 0, persons, 0, n);
+        }
     }
 }
 
-interface Sorter2<T> {
-    void sort(T[] array, Comparator<T> comparator);
-}
+// Schwartzian transform: every element's key is extracted once into a long[], the merge sort
+// then only moves ints and longs and the objects are moved a single time at the end.
+// The packed key must agree with the comparator, which is only asked about equal keys (never if exact)
+class KeyedSorter<T> implements Sorter2<T> {
+    private final ToLongFunction<T> keyExtractor;
+    private final boolean exactKey;
 
-class InsertionSorter2<T> implements Sorter2<T> {
-    @Override
-    public void sort(T[] array, Comparator<T> comparator) {
-        if (array == null || array.length <= 1) return;
+    public KeyedSorter(ToLongFunction<T> keyExtractor, boolean exactKey) {
+        this.keyExtractor = keyExtractor;
+        this.exactKey = exactKey;
+    }
 
-        for (int i = 1; i < array.length; i++) {
-            T current = array[i];
-            int j = i - 1;
+    // The whole order is in the long, e.g. a packed date
+    public static <T> KeyedSorter<T> byLong(ToLongFunction<T> keyExtractor) {
+        return new KeyedSorter<>(keyExtractor, true);
+    }
 
-            while (j >= 0 && comparator.compare(array[j], current) > 0) {
-                array[j + 1] = array[j];
-                j--;
-            }
-            array[j + 1] = current;
+    // The first 4 chars of the string are packed in the long, the comparator breaks the ties
+    public static <T> KeyedSorter<T> byStringPrefix(Function<T, String> stringExtractor) {
+        return new KeyedSorter<>(item -> packPrefix(stringExtractor.apply(item)), false);
+    }
+
+    // 4 chars of 16 bits, missing chars are 0 so shorter strings come first like in compareTo.
+    // The sign bit is flipped so a signed compare of the packed values is an unsigned compare of the chars
+    static long packPrefix(String s) {
+        long packed = 0;
+        for (int i = 0; i < 4; i++) {
+            packed = (packed << 16) | (i < s.length() ? s.charAt(i) : 0);
         }
+        return packed ^ Long.MIN_VALUE;
     }
-} 
-/// Unused because of performance reasons but it is useful for small arrays and for Timsort which is Arrays.sort here
 
-class MergeSorter2<T> implements Sorter2<T> {
     @Override
     public void sort(T[] array, Comparator<T> comparator) {
         if (array == null || array.length <= 1) return;
 
-        @SuppressWarnings("unchecked")
-        T[] tempArray = (T[]) new Object[array.length];
-        mergeSort(array, tempArray, 0, array.length - 1, comparator);
+        int n = array.length;
+        long[] keys = new long[n];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = keyExtractor.applyAsLong(array[i]);
+            indices[i] = i;
+        }
+
+        mergeSort(array, keys, indices, new long[n], new int[n], 0, n - 1, comparator);
+
+        // Move every object once into its final place
+        T[] original = Arrays.copyOf(array, n);
+        for (int i = 0; i < n; i++) {
+            array[i] = original[indices[i]];
+        }
     }
 
-    private void mergeSort(T[] array, T[] tempArray, int left, int right, Comparator<T> comparator) {
+    private void mergeSort(T[] array, long[] keys, int[] indices, long[] tempKeys, int[] tempIndices,
+                           int left, int right, Comparator<T> comparator) {
         if (left < right) {
             int mid = left + (right - left) / 2;
-            mergeSort(array, tempArray, left, mid, comparator);
-            mergeSort(array, tempArray, mid + 1, right, comparator);
-            merge(array, tempArray, left, mid, right, comparator);
+            mergeSort(array, keys, indices, tempKeys, tempIndices, left, mid, comparator);
+            mergeSort(array, keys, indices, tempKeys, tempIndices, mid + 1, right, comparator);
+
+            if (compare(array, keys[mid], indices[mid], keys[mid + 1], indices[mid + 1], comparator) <= 0) return;
+            merge(array, keys, indices, tempKeys, tempIndices, left, mid, right, comparator);
         }
     }
 
-    private void merge(T[] array, T[] tempArray, int left, int mid, int right, Comparator<T> comparator) {
-        for (int i = left; i <= right; i++) {
-            tempArray[i] = array[i];
-        }
+    private void merge(T[] array, long[] keys, int[] indices, long[] tempKeys, int[] tempIndices,
+                       int left, int mid, int right, Comparator<T> comparator) {
+        System.arraycopy(keys, left, tempKeys, left, right - left + 1);
+        System.arraycopy(indices, left, tempIndices, left, right - left + 1);
 
         int i = left;
         int j = mid + 1;
         int k = left;
 
         while (i <= mid && j <= right) {
-            if (comparator.compare(tempArray[i], tempArray[j]) <= 0) {
-                array[k++] = tempArray[i++];
+            if (compare(array, tempKeys[i], tempIndices[i], tempKeys[j], tempIndices[j], comparator) <= 0) {
+                keys[k] = tempKeys[i];
+                indices[k++] = tempIndices[i++];
             } else {
-                array[k++] = tempArray[j++];
+                keys[k] = tempKeys[j];
+                indices[k++] = tempIndices[j++];
             }
         }
 
-        while (i <= mid) {
-            array[k++] = tempArray[i++];
-        }
-    }
-}
-
-// QuickSort unique from DSA course :)
-class QuickSorter2<T> implements Sorter2<T> {
-    @Override
-    public void sort(T[] array, Comparator<T> comparator) {
-        if (array == null || array.length <= 1) return;
-        quickSort(array, array.length, 0, array.length - 1, comparator);
-    }
-
-    private void quickSort(T[] array, int arr_size, int left, int right, Comparator<T> comparator) {
-        int i = left, j = right;
-        T x = array[left + (right - left)/2];
-        
-        do {
-            while (comparator.compare(array[i], x) < 0) i++;
-            while (comparator.compare(array[j], x) > 0) j--;
-            
-            if (i <= j) {
-                swap(array, i, j);
-                i++;
-                j--;
-            }
-        } while (i <= j);
-        
-        if (left < j) quickSort(array, arr_size, left, j, comparator);
-        if (right > i) quickSort(array, arr_size, i, right, comparator);
+        System.arraycopy(tempKeys, i, keys, k, mid - i + 1);
+        System.arraycopy(tempIndices, i, indices, k, mid - i + 1);
     }
 
-    private void swap(T[] array, int i, int j) {
-        T temp = array[i];
-        array[i] = array[j];
-        array[j] = temp;
+    private int compare(T[] array, long key1, int index1, long key2, int index2, Comparator<T> comparator) {
+        int cmp = Long.compare(key1, key2);
+        if (cmp != 0 || exactKey) return cmp;
+        return comparator.compare(array[index1], array[index2]);
     }
 }
 
@@ -212,38 +1571,534 @@ class DataReader {
         }
     }
 
+    // Same result as readIntegers but as an int[], no Integer objects
+    public static int[] readIntArray(String filename) throws IOException {
+        return readIntegersParallel(filename, 1);
+    }
+
+    // Same result as readIntegers but parsed on several threads, straight into an int[]
+    public static int[] readIntegersParallel(String filename, int parallelism) throws IOException {
+        int[] all = ParallelIntegerParser.parse(filename, parallelism);
+        if (all.length == 0) return all;
+
+        // First number in the file is the count
+        int count = Math.min(Math.max(all[0], 0), all.length - 1);
+        return Arrays.copyOfRange(all, 1, 1 + count);
+    }
+
+    private static final int PERSON_BUFFER_SIZE = 1 << 22;
+    private static final int INTEGER_BUFFER_SIZE = 1 << 20;
+
+    // Streams the integers of the file to action without keeping them, the first number is the count
+    public static void forEachInteger(String filename, IntConsumer action) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(INTEGER_BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            int count = -1;
+            int loaded = 0;
+            int value = 0;
+            boolean negative = false;
+            boolean inNumber = false;
+
+            // A number cut by the end of a block carries on in the next one
+            int read;
+            while (loaded != count && (read = channel.read(buffer)) != -1) {
+                for (int i = 0; i < read && loaded != count; i++) {
+                    byte b = bytes[i];
+                    if (b >= '0' && b <= '9') {
+                        value = value * 10 + (b - '0');
+                        inNumber = true;
+                    } else if (b == '-' && !inNumber) {
+                        negative = true;
+                    } else {
+                        if (inNumber) {
+                            if (count < 0) {
+                                count = negative ? 0 : value;
+                            } else {
+                                action.accept(negative ? -value : value);
+                                loaded++;
+                            }
+                        }
+                        value = 0;
+                        negative = false;
+                        inNumber = false;
+                    }
+                }
+                buffer.clear();
+            }
+
+            if (inNumber && loaded != count) {
+                if (count < 0) count = negative ? 0 : value;
+                else action.accept(negative ? -value : value);
+            }
+            if (count < 0) throw new IOException("Missing integer count in " + filename);
+        }
+    }
+
     public static Person[] readPersons(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String firstLine = reader.readLine().trim();
-            Scanner scanner = new Scanner(firstLine);
-            int count = scanner.nextInt();
-            scanner.close();
+        List<Person> personsList = new ArrayList<>();
+        forEachPerson(filename, personsList::add);
+        return personsList.toArray(new Person[0]);
+    }
 
-            List<Person> personsList = new ArrayList<>();
+    // Reads big blocks of bytes and tokenizes them by hand: no regex, no String per line
+    // and no split of the date, only the id and the two names become Strings.
+    // Every person is handed to action as soon as it is parsed so the file doesn't need to fit in memory
+    public static void forEachPerson(String filename, Consumer<Person> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(PERSON_BUFFER_SIZE);
+            // Start and end of the first 4 tokens of the current line
+            int[] tokens = new int[8];
+            int count = -1;
+            int loaded = 0;
+            boolean endOfFile = false;
+
+            while (!endOfFile && loaded != count) {
+                endOfFile = channel.read(buffer) == -1;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+
+                for (int i = 0; i < limit && loaded != count; i++) {
+                    if (bytes[i] != '\n') continue;
+
+                    int tokenCount = tokenize(bytes, lineStart, i, tokens);
+                    if (count < 0) {
+                        count = parseCount(bytes, tokens, tokenCount);
+                    } else if (tokenCount == 4) {
+                        action.accept(parsePerson(bytes, tokens));
+                        loaded++;
+                    }
+                    lineStart = i + 1;
+                }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.trim().split("\\s+");
-                if (parts.length >= 4) {
-                    String id = parts[0];
-                    String firstName = parts[1];
-                    String lastName = parts[2];
-                    String dateString = parts[3];
+                // Last line without a newline at the end
+                if (endOfFile && lineStart < limit && loaded != count) {
+                    int tokenCount = tokenize(bytes, lineStart, limit, tokens);
+                    if (count < 0) {
+                        count = parseCount(bytes, tokens, tokenCount);
+                    } else if (tokenCount == 4) {
+                        action.accept(parsePerson(bytes, tokens));
+                        loaded++;
+                    }
+                }
+
+                // Keep the unfinished line for the next read, grow the buffer if it is longer than it
+                int leftover = limit - lineStart;
+                if (leftover == bytes.length) {
+                    ByteBuffer bigger = ByteBuffer.allocate(bytes.length * 2);
+                    bigger.put(bytes, 0, leftover);
+                    buffer = bigger;
+                } else {
+                    System.arraycopy(bytes, lineStart, bytes, 0, leftover);
+                    buffer.position(leftover);
+                }
+            }
+
+            if (count < 0) throw new IOException("Missing person count in " + filename);
+        }
+    }
+
+    // Stores start/end of up to 4 whitespace separated tokens of bytes[from, to), returns how many (at most 4).
+    // Bytes are compared unsigned, UTF-8 letters outside ASCII are >= 0x80 and belong to the token
+    private static int tokenize(byte[] bytes, int from, int to, int[] tokens) {
+        int tokenCount = 0;
+        int i = from;
+        while (i < to && tokenCount < 4) {
+            while (i < to && (bytes[i] & 0xFF) <= ' ') i++;
+            if (i == to) break;
+
+            tokens[2 * tokenCount] = i;
+            while (i < to && (bytes[i] & 0xFF) > ' ') i++;
+            tokens[2 * tokenCount + 1] = i;
+            tokenCount++;
+        }
+        return tokenCount;
+    }
+
+    private static int parseCount(byte[] bytes, int[] tokens, int tokenCount) throws IOException {
+        if (tokenCount == 0) throw new IOException("Missing person count");
+        int count = parseNumber(bytes, tokens[0], tokens[1]);
+        if (count < 0) throw new IOException("Invalid person count");
+        return count;
+    }
+
+    private static Person parsePerson(byte[] bytes, int[] tokens) {
+        String id = new String(bytes, tokens[0], tokens[1] - tokens[0], StandardCharsets.UTF_8);
+        String firstName = new String(bytes, tokens[2], tokens[3] - tokens[2], StandardCharsets.UTF_8);
+        String lastName = new String(bytes, tokens[4], tokens[5] - tokens[4], StandardCharsets.UTF_8);
+
+        // dd/mm/yyyy, anything else (other slash counts, empty fields like "1/2/") leaves the date
+        // at 0 like the String constructor does
+        int day = 0, month = 0, year = 0;
+        int dateStart = tokens[6];
+        int dateEnd = tokens[7];
+        int firstSlash = indexOf(bytes, dateStart, dateEnd, (byte) '/');
+        int secondSlash = indexOf(bytes, firstSlash + 1, dateEnd, (byte) '/');
+        boolean threeFields = firstSlash < dateEnd && secondSlash < dateEnd
+                && indexOf(bytes, secondSlash + 1, dateEnd, (byte) '/') == dateEnd;
+        boolean noneEmpty = firstSlash > dateStart && secondSlash > firstSlash + 1 && dateEnd > secondSlash + 1;
+        if (threeFields && noneEmpty) {
+            day = parseNumber(bytes, dateStart, firstSlash);
+            month = parseNumber(bytes, firstSlash + 1, secondSlash);
+            year = parseNumber(bytes, secondSlash + 1, dateEnd);
+        }
+
+        return new Person(id, firstName, lastName, day, month, year);
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        while (from < to && bytes[from] != b) from++;
+        return from;
+    }
+
+    private static int parseNumber(byte[] bytes, int from, int to) {
+        boolean negative = from < to && bytes[from] == '-';
+        if (negative || (from < to && bytes[from] == '+')) from++;
+        if (from == to) throw new NumberFormatException("Empty number");
+
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
+
+// Binary snapshots of parsed data files, written next to the text file as <name>.bin after the first parse.
+// Later runs map the snapshot and read the columns straight out of it instead of parsing text.
+// A snapshot is only used while the size and modification time of the text file are the ones it was made from.
+// Layout: magic, version, kind, source size, source mtime, count, then the columns
+//  - integers: count ints
+//  - persons: count packed yyyymmdd ints, then ids, first names and last names as length prefixed UTF-8
+class DataCache {
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    // 2: snapshots made before the tokenizer compared bytes unsigned can have broken non-ASCII names
+    private static final int VERSION = 2;
+    private static final byte KIND_INTEGERS = 1;
+    private static final byte KIND_PERSONS = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 8 + 4;
+
+    public static Integer[] readIntegers(String filename) throws IOException {
+        int[] values = readIntArray(filename);
+        Integer[] integers = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            integers[i] = values[i];
+        }
+        return integers;
+    }
+
+    public static int[] readIntArray(String filename) throws IOException {
+        Path source = Paths.get(filename);
+        ByteBuffer snapshot = openSnapshot(source, KIND_INTEGERS);
+        if (snapshot != null) {
+            int[] values = readInts(snapshot, snapshot.getInt());
+            if (values != null) return values;
+        }
+
+        int[] values = DataReader.readIntArray(filename);
+        writeSnapshot(source, KIND_INTEGERS, 4L * values.length, out -> {
+            out.writeInt(values.length);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+        });
+        return values;
+    }
+
+    public static Person[] readPersons(String filename) throws IOException {
+        Path source = Paths.get(filename);
+        ByteBuffer snapshot = openSnapshot(source, KIND_PERSONS);
+        if (snapshot != null) {
+            int count = snapshot.getInt();
+            int[] dates = readInts(snapshot, count);
+            String[] ids = dates != null ? readStrings(snapshot, count) : null;
+            String[] firstNames = ids != null ? readStrings(snapshot, count) : null;
+            String[] lastNames = firstNames != null ? readStrings(snapshot, count) : null;
+
+            if (lastNames != null) {
+                Person[] persons = new Person[count];
+                for (int i = 0; i < count; i++) {
+                    int date = dates[i];
+                    persons[i] = new Person(ids[i], firstNames[i], lastNames[i], date % 100, date / 100 % 100, date / 10000);
+                }
+                return persons;
+            }
+        }
+
+        Person[] persons = DataReader.readPersons(filename);
+        long columnsSize = 4L * persons.length;
+        for (Person person : persons) {
+            columnsSize += 3 * 4 + utf8Length(person.getId()) + utf8Length(person.getFirstName()) + utf8Length(person.getLastName());
+        }
+        writeSnapshot(source, KIND_PERSONS, columnsSize, out -> {
+            out.writeInt(persons.length);
+            for (Person person : persons) {
+                out.writeInt(person.getBirthDateKey());
+            }
+            for (Person person : persons) {
+                writeString(out, person.getId());
+            }
+            for (Person person : persons) {
+                writeString(out, person.getFirstName());
+            }
+            for (Person person : persons) {
+                writeString(out, person.getLastName());
+            }
+        });
+        return persons;
+    }
+
+    private static Path snapshotPath(Path source) {
+        return source.resolveSibling(source.getFileName() + ".bin");
+    }
+
+    // The mapped snapshot positioned after the header, or null if it is missing, stale or damaged.
+    // The column readers below return null as well when the columns are shorter than the counts say
+    private static ByteBuffer openSnapshot(Path source, byte kind) throws IOException {
+        Path snapshotPath = snapshotPath(source);
+        if (!Files.exists(snapshotPath)) return null;
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // A single mapping can't go past 2 GB, such files are simply parsed again
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) return null;
+
+            // The header is checked with a plain read first. A stale snapshot that got mapped would stay
+            // mapped until the buffer is collected, and on Windows the new snapshot can't replace it then
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE - 4);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) return null;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.get() != kind) return null;
+            if (header.getLong() != Files.size(source)) return null;
+            if (header.getLong() != Files.getLastModifiedTime(source).toMillis()) return null;
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.position(header.limit());
+            return buffer;
+        }
+    }
+
+    private interface SnapshotWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Written to a temporary file first and then moved over the old snapshot,
+    // a failed write just means the next run parses the text again.
+    // columnsSize is what comes after the count. A snapshot that openSnapshot could not map is
+    // not written at all, otherwise it would be written again on every run for nothing
+    private static void writeSnapshot(Path source, byte kind, long columnsSize, SnapshotWriter columns) {
+        if (HEADER_SIZE + columnsSize > Integer.MAX_VALUE) return;
+
+        Path snapshotPath = snapshotPath(source);
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeByte(kind);
+                out.writeLong(Files.size(source));
+                out.writeLong(Files.getLastModifiedTime(source).toMillis());
+                columns.write(out);
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snapshotPath + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // Nothing else to clean up
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Encoded size without encoding, can only be too big for broken surrogate pairs
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (Character.isSurrogate(c)) length += 2;
+            else length += 3;
+        }
+        return length;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        if (count < 0 || buffer.remaining() / 4 < count) return null;
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) {
+        String[] strings = new String[count];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) return null;
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) return null;
+            if (length > bytes.length) bytes = new byte[Math.max(length, 2 * bytes.length)];
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
+
+// Splits the file into byte ranges that start right after a newline and parses
+// every range on its own ForkJoinPool worker, the parts are then glued back in file order
+class ParallelIntegerParser {
+    // A single mapping can't exceed Integer.MAX_VALUE bytes
+    private static final long MAX_CHUNK = 1L << 30;
+    // More chunks than workers so a slow chunk doesn't leave the other cores idle
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    public static int[] parse(String filename, int parallelism) throws IOException {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max((long) parallelism * CHUNKS_PER_WORKER, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+            long[] bounds = splitOnNewlines(channel, size, chunks);
+
+            ChunkParser[] parsers = new ChunkParser[chunks];
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (int i = 0; i < chunks; i++) {
+                    parsers[i] = new ChunkParser(channel, bounds[i], bounds[i + 1]);
+                    pool.execute(parsers[i]);
+                }
+                for (ChunkParser parser : parsers) {
+                    parser.join();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+
+            int total = 0;
+            for (ChunkParser parser : parsers) {
+                total += parser.count;
+            }
+
+            int[] result = new int[total];
+            int offset = 0;
+            for (ChunkParser parser : parsers) {
+                System.arraycopy(parser.values, 0, result, offset, parser.count);
+                offset += parser.count;
+            }
+            return result;
+        }
+    }
+
+    // bounds[i]..bounds[i + 1] is chunk i, every inner bound is moved forward to just after a newline
+    private static long[] splitOnNewlines(FileChannel channel, long size, int chunks) throws IOException {
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
 
-                    personsList.add(new Person(id, firstName, lastName, dateString));
+        for (int i = 1; i < chunks; i++) {
+            long target = Math.max(size / chunks * i, bounds[i - 1]);
+            bounds[i] = nextLineStart(channel, probe, target, size);
+        }
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel channel, ByteBuffer probe, long position, long size) throws IOException {
+        if (position == 0) return 0;
+
+        // Position is already a line start if the byte before it is a newline
+        position--;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) break;
+
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
 
-                    if (personsList.size() >= count) break;
+    @SuppressWarnings("serial")
+    private static class ChunkParser extends RecursiveAction {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        int[] values;
+        int count;
+
+        ChunkParser(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Rough guess of one number every 8 bytes, grows if the numbers are shorter
+            values = new int[(int) ((end - start) / 8) + 16];
+            if (end <= start) return;
+
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            int value = 0;
+            boolean negative = false;
+            boolean inNumber = false;
+            int limit = buffer.limit();
+
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    inNumber = true;
+                } else if (b == '-' && !inNumber) {
+                    negative = true;
+                } else {
+                    if (inNumber) add(negative ? -value : value);
+                    value = 0;
+                    negative = false;
+                    inNumber = false;
                 }
             }
+            if (inNumber) add(negative ? -value : value);
+        }
 
-            return personsList.toArray(new Person[0]);
+        private void add(int value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+            }
+            values[count++] = value;
         }
     }
 }
 
 class SortingWithGenericSorter {
     
-    private static Comparator<Person> createDateComparator() {
+    static Comparator<Person> createDateComparator() {
         return (p1, p2) -> {
             // First compare by age in years
             int ageCompare = Integer.compare(p1.getAge(), p2.getAge());
@@ -283,6 +2138,71 @@ class SortingWithGenericSorter {
                 .orElse("None");
     }
 
+    // Bytes of one array slot, 4 with compressed references which is the default under 32 GB of heap
+    private static int referenceSize() {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean = java.lang.management.ManagementFactory
+                    .getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue()) ? 4 : 8;
+        } catch (RuntimeException e) {
+            return 8;
+        }
+    }
+
+    // Times MergeSorter2 against PingPongMergeSorter2 and prints how many bytes each one copied
+    private static <T> void compareMergeTraffic(String label, T[] source, Comparator<T> comparator) {
+        MergeSorter2<T> copyBackSorter = new MergeSorter2<>();
+        PingPongMergeSorter2<T> pingPongSorter = new PingPongMergeSorter2<>();
+        int referenceSize = referenceSize();
+
+        // One untimed run each first so both are compiled by the JIT before timing
+        copyBackSorter.sort(Arrays.copyOf(source, source.length), comparator);
+        pingPongSorter.sort(Arrays.copyOf(source, source.length), comparator);
+
+        T[] copy = Arrays.copyOf(source, source.length);
+        Stopwatch timer = new Stopwatch();
+        long copyBackMoves = copyBackSorter.sortCountingMoves(copy, comparator);
+        double copyBackTime = timer.getElapsedTime();
+        double copyBackMB = copyBackMoves * referenceSize / (1024.0 * 1024.0);
+
+        copy = Arrays.copyOf(source, source.length);
+        timer.start();
+        long pingPongMoves = pingPongSorter.sortCountingMoves(copy, comparator);
+        double pingPongTime = timer.getElapsedTime();
+        double pingPongMB = pingPongMoves * referenceSize / (1024.0 * 1024.0);
+
+        System.out.println(label + ":");
+        System.out.println(String.format("MergeSort: %s seconds, %.1f MB moved", copyBackTime, copyBackMB));
+        System.out.println(String.format("PingPongMergeSort: %s seconds, %.1f MB moved (%s, %.2fx less traffic)",
+                pingPongTime, pingPongMB, calculateSpeedup(copyBackTime, pingPongTime), copyBackMB / pingPongMB));
+    }
+
+    // Times one sorter on a fresh copy of source and records it with the others of the same section
+    private static <T> void timeSort(String name, Sorter2<T> sorter, T[] source, Comparator<T> comparator,
+                                     double baselineTime, Map<String, Double> times) {
+        T[] copy = Arrays.copyOf(source, source.length);
+        Stopwatch timer = new Stopwatch();
+        sorter.sort(copy, comparator);
+        double time = timer.getElapsedTime();
+        System.out.println(name + " time: " + time + " seconds (" +
+                calculateSpeedup(baselineTime, time) + ")");
+        times.put(name, time);
+    }
+
+    // Same as timeSort but sorts the rows of the table, starting from the load order.
+    // A null sorter means the table's own int[] sort
+    private static void timeTableSort(String name, PersonTable table, Sorter2<Integer> sorter, IndexComparator comparator,
+                                      double baselineTime, Map<String, Double> times) {
+        table.resetOrder();
+        Stopwatch timer = new Stopwatch();
+        if (sorter != null) table.sort(sorter, comparator);
+        else table.sort(comparator);
+        double time = timer.getElapsedTime();
+        System.out.println(name + " time: " + time + " seconds (" +
+                calculateSpeedup(baselineTime, time) + ")");
+        times.put(name, time);
+    }
+
     public static void main(String[] args) {
         // Display count here, you can increase it, even maximum :)
         // But be careful! If it is increased, not everything may be displayed sadly :(
@@ -294,18 +2214,39 @@ class SortingWithGenericSorter {
 
         try {
             System.out.println("Reading integers...");
-            Integer[] integers = DataReader.readIntegers(integersFile);
+            // Parsed from text on the first run, from the binary snapshot next to it afterwards
+            Integer[] integers = DataCache.readIntegers(integersFile);
             System.out.println("Read " + integers.length + " integers");
 
             System.out.println("\nReading persons...");
-            Person[] persons = DataReader.readPersons(personsFile);
-            System.out.println("Read " + persons.length + " persons");
+            // The text loader is always timed on its own, the snapshot only helps later runs
+            Stopwatch loadTimer = new Stopwatch();
+            Person[] parsedPersons = DataReader.readPersons(personsFile);
+            double loadTime = loadTimer.getElapsedTime();
+            System.out.println("Read " + parsedPersons.length + " persons in " + loadTime + " seconds (" +
+                    String.format("%.0f", parsedPersons.length / loadTime) + " records/sec)");
+
+            loadTimer.start();
+            Person[] persons = DataCache.readPersons(personsFile);
+            System.out.println("Read them through the snapshot cache in " + loadTimer.getElapsedTime() +
+                    " seconds (first run: parses and writes the snapshot)");
+
+            loadTimer.start();
+            PersonTable personTable = PersonTable.fromPersons(persons);
+            System.out.println("Built columnar person table in " + loadTimer.getElapsedTime() + " seconds");
 
             // Initialize sorters
             Sorter2<Integer> mergeSorterInt = new MergeSorter2<>();
             Sorter2<Integer> quickSorterInt = new QuickSorter2<>();
             Sorter2<Person> mergeSorterPerson = new MergeSorter2<>();
             Sorter2<Person> quickSorterPerson = new QuickSorter2<>();
+            Sorter2<Integer> parallelMergeSorterInt = new ParallelMergeSorter2<>();
+            Sorter2<Person> parallelMergeSorterPerson = new ParallelMergeSorter2<>();
+            Sorter2<Integer> parallelArraysSortInt = Arrays::parallelSort;
+            Sorter2<Integer> introQuickSorterInt = new IntroQuickSorter2<>();
+            Sorter2<Person> introQuickSorterPerson = new IntroQuickSorter2<>();
+            Sorter2<Person> naturalMergeSorterPerson = new NaturalMergeSorter2<>();
+            Sorter2<Person> parallelArraysSortPerson = Arrays::parallelSort;
 
             Comparator<Integer> intComparator = Integer::compareTo;
 
@@ -315,6 +2256,11 @@ class SortingWithGenericSorter {
             Comparator<Person> dateComparator = createDateComparator();
             Comparator<Person> ageComparator = dateComparator;
 
+            // Youngest first is latest birth date first, hence the minus
+            Sorter2<Person> keyedSorterLastName = KeyedSorter.byStringPrefix(Person::getLastName);
+            Sorter2<Person> keyedSorterFirstName = KeyedSorter.byStringPrefix(Person::getFirstName);
+            Sorter2<Person> keyedSorterAge = KeyedSorter.byLong(p -> -p.getBirthDateKey());
+
             Stopwatch timer = new Stopwatch();
             
             // Maps to store timing results for comparison
@@ -351,8 +2297,75 @@ class SortingWithGenericSorter {
                     calculateSpeedup(arraysTime, quickTime) + ")");
             intSortTimes.put("QuickSort", quickTime);
 
+            timeSort("Arrays.parallelSort", parallelArraysSortInt, integers, intComparator, arraysTime, intSortTimes);
+            timeSort("ParallelMergeSort", parallelMergeSorterInt, integers, intComparator, arraysTime, intSortTimes);
+            timeSort("IntroQuickSort", introQuickSorterInt, integers, intComparator, arraysTime, intSortTimes);
+
             System.out.println("Fastest algorithm for integers: " + findFastestAlgorithm(intSortTimes));
 
+            System.out.println("\n--- QuickSort on Adversarial Inputs ---");
+            int n = integers.length;
+            Integer[] sortedInts = Arrays.copyOf(integers, n);
+            Arrays.sort(sortedInts);
+            Integer[] reversedInts = new Integer[n];
+            Integer[] equalInts = new Integer[n];
+            Integer[] organPipeInts = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                reversedInts[i] = sortedInts[n - 1 - i];
+                equalInts[i] = sortedInts[0];
+                // Even positions going up, then odd positions coming back down
+                organPipeInts[i] = i < (n + 1) / 2 ? sortedInts[2 * i] : sortedInts[2 * (n - 1 - i) + 1];
+            }
+
+            String[] shapeNames = { "sorted", "reversed", "all equal", "organ pipe" };
+            Integer[][] shapes = { sortedInts, reversedInts, equalInts, organPipeInts };
+            for (int s = 0; s < shapes.length; s++) {
+                System.out.println("Input " + shapeNames[s] + ":");
+                Map<String, Double> shapeTimes = new HashMap<>();
+
+                integersCopy = Arrays.copyOf(shapes[s], n);
+                timer.start();
+                Arrays.sort(integersCopy, intComparator);
+                arraysTime = timer.getElapsedTime();
+                System.out.println("Arrays.sort time: " + arraysTime + " seconds");
+                shapeTimes.put("Arrays.sort", arraysTime);
+
+                try {
+                    timeSort("QuickSort", quickSorterInt, shapes[s], intComparator, arraysTime, shapeTimes);
+                } catch (StackOverflowError e) {
+                    System.out.println("QuickSort overflowed the stack");
+                }
+                timeSort("IntroQuickSort", introQuickSorterInt, shapes[s], intComparator, arraysTime, shapeTimes);
+
+                System.out.println("Fastest algorithm for " + shapeNames[s] + " input: " + findFastestAlgorithm(shapeTimes));
+            }
+
+            System.out.println("\n--- Sorting Primitive int[] ---");
+            Map<String, Double> primitiveSortTimes = new HashMap<>();
+            int[] primitives = DataCache.readIntArray(integersFile);
+
+            // Arrays.sort
+            int[] primitivesCopy = Arrays.copyOf(primitives, primitives.length);
+            timer.start();
+            Arrays.sort(primitivesCopy);
+            arraysTime = timer.getElapsedTime();
+            System.out.println("Arrays.sort(int[]) time: " + arraysTime + " seconds");
+            primitiveSortTimes.put("Arrays.sort", arraysTime);
+
+            IntSorter[] intSorters = { new IntMergeSorter(), new IntQuickSorter(), new IntRadixSorter() };
+            String[] intSorterNames = { "IntMergeSort", "IntQuickSort", "IntRadixSort" };
+            for (int s = 0; s < intSorters.length; s++) {
+                primitivesCopy = Arrays.copyOf(primitives, primitives.length);
+                timer.start();
+                intSorters[s].sort(primitivesCopy);
+                double time = timer.getElapsedTime();
+                System.out.println(intSorterNames[s] + " time: " + time + " seconds (" +
+                        calculateSpeedup(arraysTime, time) + ")");
+                primitiveSortTimes.put(intSorterNames[s], time);
+            }
+
+            System.out.println("Fastest algorithm for int[]: " + findFastestAlgorithm(primitiveSortTimes));
+
             System.out.println("\n--- Sorting Persons by Last Name ---");
             
             // Arrays.sort
@@ -381,6 +2394,14 @@ class SortingWithGenericSorter {
                     calculateSpeedup(arraysTime, quickTime) + ")");
             lastNameSortTimes.put("QuickSort", quickTime);
 
+            timeSort("Arrays.parallelSort", parallelArraysSortPerson, persons, lastNameComparator, arraysTime, lastNameSortTimes);
+            timeSort("ParallelMergeSort", parallelMergeSorterPerson, persons, lastNameComparator, arraysTime, lastNameSortTimes);
+            timeSort("IntroQuickSort", introQuickSorterPerson, persons, lastNameComparator, arraysTime, lastNameSortTimes);
+            timeSort("KeyedMergeSort", keyedSorterLastName, persons, lastNameComparator, arraysTime, lastNameSortTimes);
+            timeTableSort("PersonTable int[] MergeSort", personTable, null, personTable.byLastName(), arraysTime, lastNameSortTimes);
+            timeTableSort("PersonTable MergeSort", personTable, mergeSorterInt, personTable.byLastName(), arraysTime, lastNameSortTimes);
+            timeTableSort("PersonTable QuickSort", personTable, quickSorterInt, personTable.byLastName(), arraysTime, lastNameSortTimes);
+
             System.out.println("Fastest algorithm for last name sorting: " + findFastestAlgorithm(lastNameSortTimes));
 
             System.out.println("\n--- Sorting Persons by First Name ---");
@@ -411,6 +2432,14 @@ class SortingWithGenericSorter {
                     calculateSpeedup(arraysTime, quickTime) + ")");
             firstNameSortTimes.put("QuickSort", quickTime);
 
+            timeSort("Arrays.parallelSort", parallelArraysSortPerson, persons, firstNameComparator, arraysTime, firstNameSortTimes);
+            timeSort("ParallelMergeSort", parallelMergeSorterPerson, persons, firstNameComparator, arraysTime, firstNameSortTimes);
+            timeSort("IntroQuickSort", introQuickSorterPerson, persons, firstNameComparator, arraysTime, firstNameSortTimes);
+            timeSort("KeyedMergeSort", keyedSorterFirstName, persons, firstNameComparator, arraysTime, firstNameSortTimes);
+            timeTableSort("PersonTable int[] MergeSort", personTable, null, personTable.byFirstName(), arraysTime, firstNameSortTimes);
+            timeTableSort("PersonTable MergeSort", personTable, mergeSorterInt, personTable.byFirstName(), arraysTime, firstNameSortTimes);
+            timeTableSort("PersonTable QuickSort", personTable, quickSorterInt, personTable.byFirstName(), arraysTime, firstNameSortTimes);
+
             System.out.println("Fastest algorithm for first name sorting: " + findFastestAlgorithm(firstNameSortTimes));
 
             System.out.println("\n--- Sorting Persons by Age ---");
@@ -441,14 +2470,95 @@ class SortingWithGenericSorter {
                     calculateSpeedup(arraysTime, quickTime) + ")");
             ageSortTimes.put("QuickSort", quickTime);
 
+            timeSort("Arrays.parallelSort", parallelArraysSortPerson, persons, ageComparator, arraysTime, ageSortTimes);
+            timeSort("ParallelMergeSort", parallelMergeSorterPerson, persons, ageComparator, arraysTime, ageSortTimes);
+            timeSort("IntroQuickSort", introQuickSorterPerson, persons, ageComparator, arraysTime, ageSortTimes);
+            timeSort("KeyedMergeSort", keyedSorterAge, persons, ageComparator, arraysTime, ageSortTimes);
+            timeTableSort("PersonTable int[] MergeSort", personTable, null, personTable.byAge(), arraysTime, ageSortTimes);
+            timeTableSort("PersonTable MergeSort", personTable, mergeSorterInt, personTable.byAge(), arraysTime, ageSortTimes);
+            timeTableSort("PersonTable QuickSort", personTable, quickSorterInt, personTable.byAge(), arraysTime, ageSortTimes);
+
+            // RadixSort, doesn't use the comparator at all
+            personsCopy = Arrays.copyOf(persons, persons.length);
+            timer.start();
+            new PersonBirthDateRadixSorter().sort(personsCopy);
+            double radixTime = timer.getElapsedTime();
+            System.out.println("Birth date radix sort time: " + radixTime + " seconds (" +
+                    calculateSpeedup(arraysTime, radixTime) + ")");
+            ageSortTimes.put("RadixSort", radixTime);
+
             System.out.println("Fastest algorithm for age sorting: " + findFastestAlgorithm(ageSortTimes));
 
+            System.out.println("\n--- Sorting Nearly Sorted Persons by Id ---");
+            Map<String, Double> nearlySortedTimes = new HashMap<>();
+            Comparator<Person> idComparator = Comparator.comparing(Person::getId);
+
+            // Like a daily file: sorted by id, then 1% of the persons appended at the end in random order
+            Person[] nearlySorted = Arrays.copyOf(persons, persons.length);
+            Collections.shuffle(Arrays.asList(nearlySorted), new Random(42));
+            int tail = nearlySorted.length / 100;
+            Arrays.sort(nearlySorted, 0, nearlySorted.length - tail, idComparator);
+
+            personsCopy = Arrays.copyOf(nearlySorted, nearlySorted.length);
+            timer.start();
+            Arrays.sort(personsCopy, idComparator);
+            arraysTime = timer.getElapsedTime();
+            System.out.println("Arrays.sort time: " + arraysTime + " seconds");
+            nearlySortedTimes.put("Arrays.sort", arraysTime);
+
+            timeSort("MergeSort", mergeSorterPerson, nearlySorted, idComparator, arraysTime, nearlySortedTimes);
+            timeSort("QuickSort", quickSorterPerson, nearlySorted, idComparator, arraysTime, nearlySortedTimes);
+            timeSort("NaturalMergeSort", naturalMergeSorterPerson, nearlySorted, idComparator, arraysTime, nearlySortedTimes);
+
+            System.out.println("Fastest algorithm for nearly sorted persons: " + findFastestAlgorithm(nearlySortedTimes));
+
+            // Only the first displayCount persons are printed, so only those need to be in order
+            System.out.println("\n--- First " + displayCount + " Persons by Last Name ---");
+            Map<String, Double> topKTimes = new HashMap<>();
+
+            // Full sort as the baseline, it is what printing the first displayCount needed so far
+            personsCopy = Arrays.copyOf(persons, persons.length);
+            timer.start();
+            Arrays.sort(personsCopy, lastNameComparator);
+            arraysTime = timer.getElapsedTime();
+            System.out.println("Arrays.sort (everything) time: " + arraysTime + " seconds");
+            topKTimes.put("Arrays.sort", arraysTime);
+
+            Map<String, Sorter2<Person>> partialSorters = new LinkedHashMap<>();
+            partialSorters.put("MergeSort partialSort", mergeSorterPerson);
+            partialSorters.put("IntroQuickSort partialSort", introQuickSorterPerson);
+            partialSorters.put("ParallelMergeSort partialSort", parallelMergeSorterPerson);
+            for (Map.Entry<String, Sorter2<Person>> entry : partialSorters.entrySet()) {
+                personsCopy = Arrays.copyOf(persons, persons.length);
+                timer.start();
+                entry.getValue().partialSort(personsCopy, displayCount, lastNameComparator);
+                double time = timer.getElapsedTime();
+                System.out.println(entry.getKey() + " time: " + time + " seconds (" +
+                        calculateSpeedup(arraysTime, time) + ")");
+                topKTimes.put(entry.getKey(), time);
+            }
+
+            timer.start();
+            Person[] firstPersons = TopK.parallelSmallest(persons, displayCount, lastNameComparator, ForkJoinPool.commonPool());
+            double heapsTime = timer.getElapsedTime();
+            System.out.println("Parallel top-K heaps time: " + heapsTime + " seconds (" +
+                    calculateSpeedup(arraysTime, heapsTime) + ", " + firstPersons.length + " persons)");
+            topKTimes.put("Parallel top-K heaps", heapsTime);
+
+            System.out.println("Fastest way to get the first " + displayCount + ": " + findFastestAlgorithm(topKTimes));
+
+            System.out.println("\n--- Merge Sort Memory Traffic ---");
+            compareMergeTraffic("Integers", integers, intComparator);
+            compareMergeTraffic("Persons by last name", persons, lastNameComparator);
+
             // Overall summary
             System.out.println("\n--- Performance Summary ---");
             System.out.println("For integers: " + findFastestAlgorithm(intSortTimes) + " was fastest");
+            System.out.println("For int[]: " + findFastestAlgorithm(primitiveSortTimes) + " was fastest");
             System.out.println("For persons by last name: " + findFastestAlgorithm(lastNameSortTimes) + " was fastest");
             System.out.println("For persons by first name: " + findFastestAlgorithm(firstNameSortTimes) + " was fastest");
             System.out.println("For persons by age: " + findFastestAlgorithm(ageSortTimes) + " was fastest");
+            System.out.println("For nearly sorted persons: " + findFastestAlgorithm(nearlySortedTimes) + " was fastest");
 
             // Remove "/*" and "*/" to see the results
             /*
@@ -0,0 +1,562 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Lock-free skip list version of MySortedMap, the algorithm from Herlihy and Shavit's
+// "The Art of Multiprocessor Programming". Every node has a tower of next links, each with a mark
+// bit. A node is removed by marking its links from the top down; whoever marks the bottom link
+// owns the removal. Marked nodes are unlinked by the next put/remove that walks past them.
+// put and remove only use compare and set, get never writes anything and never retries
+public class SkipListSortedD<K extends Comparable<K>, V> implements MySortedMap<K, V> {
+    private static final int MAX_LEVEL = 32;
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        final AtomicMarkableReference<Node<K, V>>[] next;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node(K key, V value, int topLevel) {
+            this.key = key;
+            this.value = value;
+            next = new AtomicMarkableReference[topLevel + 1];
+            for (int level = 0; level <= topLevel; level++) {
+                next[level] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        int topLevel() {
+            return next.length - 1;
+        }
+    }
+
+    // Sentinel before every key, null links mean the end of the level
+    private final Node<K, V> head = new Node<>(null, null, MAX_LEVEL - 1);
+
+    // Level i is used with probability 1 / 2^i
+    private static int randomLevel() {
+        return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1)));
+    }
+
+    // Fills preds and succs with the nodes just before and at/after key on every level, unlinking
+    // marked nodes on the way. Starts over if an unlink fails because the list changed under it
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = { false };
+        retry:
+        while (true) {
+            Node<K, V> pred = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                Node<K, V> curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node<K, V> succ = curr.next[level].get(marked);
+                    if (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)) continue retry;
+                        curr = succ;
+                    } else if (curr.key.compareTo(key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return succs[0] != null && succs[0].key.compareTo(key) == 0;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodeArray() {
+        return new Node[MAX_LEVEL];
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V>[] preds = newNodeArray();
+        Node<K, V>[] succs = newNodeArray();
+        int topLevel = randomLevel();
+
+        while (true) {
+            if (find(key, preds, succs)) {
+                // Already there. If it got removed before we wrote the value, insert it again
+                Node<K, V> node = succs[0];
+                node.value = value;
+                if (!node.next[0].isMarked()) return;
+                continue;
+            }
+
+            // Linking the bottom level is what makes the key part of the map
+            Node<K, V> node = new Node<>(key, value, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                node.next[level].set(succs[level], false);
+            }
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) continue;
+
+            // The upper levels only speed up searches, they are linked one by one and given up
+            // as soon as the node is being removed
+            for (int level = 1; level <= topLevel; level++) {
+                while (true) {
+                    Node<K, V> succ = succs[level];
+                    Node<K, V> current = node.next[level].getReference();
+                    if (current != succ && !node.next[level].compareAndSet(current, succ, false, false)) {
+                        // Only fails when remove marked the link
+                        return;
+                    }
+                    if (preds[level].next[level].compareAndSet(succ, node, false, false)) break;
+                    find(key, preds, succs);
+                    if (succs[0] != node) return;
+                }
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V>[] preds = newNodeArray();
+        Node<K, V>[] succs = newNodeArray();
+        boolean[] marked = { false };
+
+        if (!find(key, preds, succs)) return;
+        Node<K, V> node = succs[0];
+        for (int level = node.topLevel(); level >= 1; level--) {
+            Node<K, V> succ = node.next[level].get(marked);
+            while (!marked[0]) {
+                node.next[level].compareAndSet(succ, succ, false, true);
+                succ = node.next[level].get(marked);
+            }
+        }
+
+        Node<K, V> succ = node.next[0].get(marked);
+        while (!marked[0]) {
+            if (node.next[0].compareAndSet(succ, succ, false, true)) {
+                // Ours, unlink it everywhere
+                find(key, preds, succs);
+                return;
+            }
+            succ = node.next[0].get(marked);
+        }
+        // Someone else removed it first
+    }
+
+    // Last live node with a key smaller than key, or head. Goes past marked nodes without
+    // unlinking them, so it never has to start over; get and the navigation below all use it
+    private Node<K, V> lowerNode(K key) {
+        boolean[] marked = { false };
+        Node<K, V> pred = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            Node<K, V> curr = pred.next[level].getReference();
+            while (curr != null) {
+                Node<K, V> succ = curr.next[level].get(marked);
+                if (marked[0]) {
+                    curr = succ;
+                } else if (curr.key.compareTo(key) < 0) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    break;
+                }
+            }
+        }
+        return pred;
+    }
+
+    // First live node with a key >= key, or null. The bottom level is walked again from the node
+    // lowerNode stopped at, since keys put just after it may not have been there when it looked
+    private Node<K, V> ceilingNode(K key) {
+        Node<K, V> x = lowerNode(key).next[0].getReference();
+        while (x != null && (x.next[0].isMarked() || x.key.compareTo(key) < 0)) {
+            x = x.next[0].getReference();
+        }
+        return x;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> x = ceilingNode(key);
+        return x != null && x.key.compareTo(key) == 0 ? x.value : null;
+    }
+
+    @Override
+    public K floorKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> lower = lowerNode(key);
+        K floor = lower == head ? null : lower.key;
+        for (Node<K, V> x = lower.next[0].getReference(); x != null; x = x.next[0].getReference()) {
+            if (x.next[0].isMarked()) continue;
+            int cmp = x.key.compareTo(key);
+            if (cmp > 0) break;
+            floor = x.key;
+            if (cmp == 0) break;
+        }
+        return floor;
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        Node<K, V> x = ceilingNode(key);
+        return x != null ? x.key : null;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Key cannot be null");
+        return get(key) != null;
+    }
+
+    @Override
+    public K firstKey() {
+        Node<K, V> first = firstNode(head.next[0].getReference());
+        return first != null ? first.key : null;
+    }
+
+    // Down the levels as far right as possible, then along the bottom to the last live node
+    @Override
+    public K lastKey() {
+        Node<K, V> pred = head;
+        for (int level = MAX_LEVEL - 1; level >= 1; level--) {
+            Node<K, V> curr = pred.next[level].getReference();
+            while (curr != null) {
+                if (!curr.next[0].isMarked()) pred = curr;
+                curr = curr.next[level].getReference();
+            }
+        }
+
+        K last = pred == head ? null : pred.key;
+        for (Node<K, V> x = pred.next[0].getReference(); x != null; x = x.next[0].getReference()) {
+            if (!x.next[0].isMarked()) last = x.key;
+        }
+        return last;
+    }
+
+    private Node<K, V> firstNode(Node<K, V> x) {
+        while (x != null && x.next[0].isMarked()) {
+            x = x.next[0].getReference();
+        }
+        return x;
+    }
+
+    // Lazy walk along the bottom level. Not a snapshot: keys put or removed while iterating may
+    // or may not show up, but every key that is there the whole time does, in order.
+    // Range views are like SortedMap's: from keys are included, to keys are not
+    @Override
+    public Iterable<K> getKeys() {
+        return () -> new BottomLevelIterator<>(null, null, x -> x.key);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> getEntries() {
+        return range(null, null);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> headMap(K toKey) {
+        if (toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(null, toKey);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> tailMap(K fromKey) {
+        if (fromKey == null) throw new IllegalArgumentException("Key cannot be null");
+        return range(fromKey, null);
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> subMap(K fromKey, K toKey) {
+        if (fromKey == null || toKey == null) throw new IllegalArgumentException("Key cannot be null");
+        if (fromKey.compareTo(toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return range(fromKey, toKey);
+    }
+
+    private Iterable<Map.Entry<K, V>> range(K fromKey, K toKey) {
+        return () -> new BottomLevelIterator<>(fromKey, toKey, x -> new AbstractMap.SimpleImmutableEntry<>(x.key, x.value));
+    }
+
+    // A null bound means no bound, the first node is found through the upper levels
+    private class BottomLevelIterator<T> implements Iterator<T> {
+        private final K toKey;
+        private final Function<Node<K, V>, T> element;
+        private Node<K, V> next;
+
+        BottomLevelIterator(K fromKey, K toKey, Function<Node<K, V>, T> element) {
+            this.toKey = toKey;
+            this.element = element;
+            next = fromKey == null ? firstNode(head.next[0].getReference()) : ceilingNode(fromKey);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && (toKey == null || next.key.compareTo(toKey) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node<K, V> x = next;
+            next = firstNode(x.next[0].getReference());
+            return element.apply(x);
+        }
+    }
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    // Throughput of the three thread safe maps with 1 to 64 threads and different read/write mixes.
+    // Writes are half puts and half removes on random keys, so the size stays around half the range.
+    // Like SorterBenchmark every cell is warmed up first and then measured several times, printed
+    // as mean and 99.9% error. Arguments: milliseconds per measurement and the key range
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 200;
+        int keyRange = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+        int[] threadCounts = { 1, 2, 4, 8, 16, 32, 64 };
+        int[] readPercentages = { 100, 90, 50, 10 };
+
+        Map<String, Supplier<MySortedMap<Integer, Integer>>> maps = new LinkedHashMap<>();
+        maps.put("SkipListSortedD", SkipListSortedD::new);
+        maps.put("ConcurrentSortedD", ConcurrentSortedD::new);
+        maps.put("GenericSortedD+RWLock", () -> new LockedSortedD<>(new GenericSortedD<Integer, Integer>()));
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", keys 0.." + (keyRange - 1) + ", " + millis + " ms per run");
+        System.out.println(String.format("%-22s %6s %8s %14s %12s", "Map", "reads", "threads", "Mops/s", "error"));
+        for (int readPercentage : readPercentages) {
+            for (Map.Entry<String, Supplier<MySortedMap<Integer, Integer>>> map : maps.entrySet()) {
+                for (int threads : threadCounts) {
+                    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                        measure(map.getValue().get(), threads, readPercentage, keyRange, millis);
+                    }
+
+                    double[] rates = new double[MEASUREMENT_ITERATIONS];
+                    for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                        rates[i] = measure(map.getValue().get(), threads, readPercentage, keyRange, millis) / 1e6;
+                    }
+
+                    double mean = 0;
+                    for (double rate : rates) mean += rate;
+                    mean /= rates.length;
+
+                    double variance = 0;
+                    for (double rate : rates) variance += (rate - mean) * (rate - mean);
+                    // t is close to 8.61 for 4 degrees of freedom at 99.9%
+                    double error = 8.610 * Math.sqrt(variance / (rates.length - 1)) / Math.sqrt(rates.length);
+
+                    System.out.println(String.format("%-22s %5d%% %8d %14.2f %12.2f", map.getKey(), readPercentage, threads, mean, error));
+                }
+            }
+        }
+    }
+
+    // Operations per second. Every worker waits on the start latch, the clock runs from releasing it
+    // until the last worker has stopped, so a slow start or stop with many threads doesn't inflate the rate
+    private static double measure(MySortedMap<Integer, Integer> map, int threads, int readPercentage,
+                                  int keyRange, long millis) throws InterruptedException {
+        for (int key = 0; key < keyRange; key += 2) {
+            map.put(key, key);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] operations = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long found = 0;
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    int key = random.nextInt(keyRange);
+                    int op = random.nextInt(100);
+                    if (op < readPercentage) {
+                        if (map.get(key) != null) found++;
+                    } else if ((op & 1) == 0) {
+                        map.put(key, key);
+                    } else {
+                        map.remove(key);
+                    }
+                    count++;
+                }
+                // found keeps the reads from being optimized away
+                operations[id] = count + (found < 0 ? 1 : 0);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        running.set(false);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers.get(t).join();
+            total += operations[t];
+        }
+        long elapsed = System.nanoTime() - begin;
+        return total / (elapsed / 1e9);
+    }
+}
+
+// GenericSortedD behind one read/write lock, the usual way to share it between threads.
+// getKeys/getEntries build their list under the read lock, so the caller gets a private copy;
+// the range views are copied the same way since they would otherwise be iterated without the lock
+class LockedSortedD<K extends Comparable<K>, V> implements MySortedMap<K, V> {
+    private final MySortedMap<K, V> map;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    LockedSortedD(MySortedMap<K, V> map) {
+        this.map = map;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            map.put(key, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            map.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        lock.readLock().lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        lock.readLock().lock();
+        try {
+            return map.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<K> getKeys() {
+        lock.readLock().lock();
+        try {
+            return map.getKeys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> getEntries() {
+        lock.readLock().lock();
+        try {
+            return map.getEntries();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public K firstKey() {
+        lock.readLock().lock();
+        try {
+            return map.firstKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public K lastKey() {
+        lock.readLock().lock();
+        try {
+            return map.lastKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public K floorKey(K key) {
+        lock.readLock().lock();
+        try {
+            return map.floorKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        lock.readLock().lock();
+        try {
+            return map.ceilingKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> headMap(K toKey) {
+        return copy(() -> map.headMap(toKey));
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> tailMap(K fromKey) {
+        return copy(() -> map.tailMap(fromKey));
+    }
+
+    @Override
+    public Iterable<Map.Entry<K, V>> subMap(K fromKey, K toKey) {
+        return copy(() -> map.subMap(fromKey, toKey));
+    }
+
+    private Iterable<Map.Entry<K, V>> copy(Supplier<Iterable<Map.Entry<K, V>>> view) {
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<K, V>> entries = new ArrayList<>();
+            for (Map.Entry<K, V> entry : view.get()) {
+                entries.add(entry);
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+// JMH style benchmark of the Sorter2 implementations from GenericSorter.java.
+// Every case is warmed up first so the JIT has compiled it, then measured several times,
+// and the bytes allocated by the sorting thread are reported like the GC profiler does.
+// Run with the sizes to test as arguments, e.g. java SorterBenchmark 1000 100000
+public class SorterBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    // InsertionSorter2 is quadratic, bigger sizes would take hours
+    private static final int INSERTION_SORT_LIMIT = 10_000;
+    private static final int[] DEFAULT_SIZES = { 1_000, 10_000, 100_000, 1_000_000, 10_000_000 };
+
+    private static final String[] FIRST_NAMES = { "Ana", "Ion", "Maria", "Vlad", "Elena", "Dan", "Ioana", "Radu",
+            "Mihai", "Cristina", "Andrei", "Alexandra", "George", "Diana", "Stefan", "Irina",
+            // Outside ASCII too, as escapes so the file compiles with any default encoding
+            "\u0218tefania", "R\u0103zvan" };
+    private static final String[] LAST_NAMES = { "Popescu", "Ionescu", "Pop", "Radu", "Dumitru", "Stan", "Stoica",
+            "Gheorghe", "Matei", "Ciobanu", "Rusu", "Munteanu", "Constantin", "Marin", "Tudor", "Florea",
+            "B\u0103lan", "\u021Aurcanu" };
+
+    enum Distribution { RANDOM, SORTED, REVERSED, FEW_UNIQUE }
+
+    // Result of the last sort is folded in here so the JIT can't drop the work
+    private static int sink;
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        Map<String, Sorter2<Integer>> integerSorters = sorters();
+        Map<String, Sorter2<Person>> personSorters = sorters();
+
+        Map<String, Comparator<Person>> personComparators = new LinkedHashMap<>();
+        personComparators.put("lastName", Comparator.comparing(Person::getLastName));
+        personComparators.put("firstName", Comparator.comparing(Person::getFirstName));
+        personComparators.put("age", SortingWithGenericSorter.createDateComparator());
+
+        System.out.println(String.format("%-8s %-10s %-11s %10s %-14s %14s %12s %14s %10s",
+                "Type", "Comparator", "Data", "Size", "Sorter", "ms/op", "error", "bytes/op", "MB/s"));
+
+        for (int size : sizes) {
+            for (Distribution distribution : Distribution.values()) {
+                Random random = new Random(42);
+                Integer[] integers = integers(size, distribution, random);
+                for (Map.Entry<String, Sorter2<Integer>> sorter : integerSorters.entrySet()) {
+                    run("Integer", "natural", distribution, integers, sorter.getKey(), sorter.getValue(), Integer::compareTo);
+                }
+
+                for (Map.Entry<String, Comparator<Person>> comparator : personComparators.entrySet()) {
+                    Person[] persons = persons(size, distribution, comparator.getValue(), random);
+                    for (Map.Entry<String, Sorter2<Person>> sorter : personSorters.entrySet()) {
+                        run("Person", comparator.getKey(), distribution, persons, sorter.getKey(), sorter.getValue(),
+                                comparator.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static <T> Map<String, Sorter2<T>> sorters() {
+        Map<String, Sorter2<T>> sorters = new LinkedHashMap<>();
+        sorters.put("InsertionSort", new InsertionSorter2<>());
+        sorters.put("MergeSort", new MergeSorter2<>());
+        sorters.put("QuickSort", new QuickSorter2<>());
+        sorters.put("Arrays.sort", Arrays::sort);
+        return sorters;
+    }
+
+    private static <T> void run(String type, String comparatorName, Distribution distribution, T[] input,
+                                String sorterName, Sorter2<T> sorter, Comparator<T> comparator) {
+        if (sorterName.equals("InsertionSort") && input.length > INSERTION_SORT_LIMIT) return;
+
+        String prefix = String.format("%-8s %-10s %-11s %10d %-14s", type, comparatorName, distribution, input.length, sorterName);
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                sortCopy(input, sorter, comparator);
+            }
+
+            double[] times = new double[MEASUREMENT_ITERATIONS];
+            long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                sortCopy(input, sorter, comparator);
+                times[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+            long allocatedAfter = allocatedBytes();
+
+            double mean = 0;
+            for (double time : times) mean += time;
+            mean /= times.length;
+
+            double variance = 0;
+            for (double time : times) variance += (time - mean) * (time - mean);
+            // 99.9% confidence interval like JMH prints, t is close to 4.78 for 9 degrees of freedom
+            double error = 4.781 * Math.sqrt(variance / (times.length - 1)) / Math.sqrt(times.length);
+
+            String allocation = "n/a";
+            String rate = "n/a";
+            if (allocatedBefore >= 0) {
+                // The copy of the input is allocated too, it is counted like any other allocation
+                long bytesPerOp = (allocatedAfter - allocatedBefore) / MEASUREMENT_ITERATIONS;
+                allocation = String.valueOf(bytesPerOp);
+                rate = String.format("%.1f", bytesPerOp / (1024.0 * 1024.0) / (mean / 1000.0));
+            }
+
+            System.out.println(String.format("%s %14.3f %12.3f %14s %10s", prefix, mean, error, allocation, rate));
+        } catch (StackOverflowError e) {
+            System.out.println(prefix + " stack overflow");
+        }
+    }
+
+    private static <T> void sortCopy(T[] input, Sorter2<T> sorter, Comparator<T> comparator) {
+        T[] copy = Arrays.copyOf(input, input.length);
+        sorter.sort(copy, comparator);
+        sink += System.identityHashCode(copy[0]);
+    }
+
+    // Bytes allocated so far by this thread, -1 if the JVM can't tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static Integer[] integers(int size, Distribution distribution, Random random) {
+        Integer[] integers = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            integers[i] = distribution == Distribution.FEW_UNIQUE ? random.nextInt(16) : random.nextInt();
+        }
+        arrange(integers, distribution, Integer::compareTo);
+        return integers;
+    }
+
+    private static Person[] persons(int size, Distribution distribution, Comparator<Person> comparator, Random random) {
+        Person[] persons = new Person[size];
+        int uniqueDates = distribution == Distribution.FEW_UNIQUE ? 4 : Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int seed = random.nextInt(uniqueDates);
+            Random fields = new Random(seed);
+            persons[i] = new Person(String.valueOf(i + 1),
+                    FIRST_NAMES[fields.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[fields.nextInt(LAST_NAMES.length)],
+                    1 + fields.nextInt(28), 1 + fields.nextInt(12), 1940 + fields.nextInt(80));
+        }
+        arrange(persons, distribution, comparator);
+        return persons;
+    }
+
+    private static <T> void arrange(T[] array, Distribution distribution, Comparator<T> comparator) {
+        if (distribution == Distribution.SORTED) {
+            Arrays.sort(array, comparator);
+        } else if (distribution == Distribution.REVERSED) {
+            Arrays.sort(array, comparator.reversed());
+        }
+    }
+}